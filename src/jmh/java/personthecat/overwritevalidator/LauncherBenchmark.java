@@ -0,0 +1,70 @@
+package personthecat.overwritevalidator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import personthecat.overwritevalidator.processors.InheritMissingMembersProcessor;
+import personthecat.overwritevalidator.processors.MissingOverwriteProcessor;
+import personthecat.overwritevalidator.processors.MissingOverwriteProcessor.ValidationContext;
+import personthecat.overwritevalidator.processors.TypeContext;
+import spoon.reflect.CtModel;
+import spoon.reflect.declaration.CtType;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing the common project and validating the platform against it.
+ * Validation is measured on several numbers of threads to show how it scales.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LauncherBenchmark extends WorkloadState {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private LauncherContext.Cache cache;
+    private List<CtType<?>> classes;
+
+    @Setup(Level.Trial)
+    public void parsePlatform() {
+        this.cache = LauncherContext.getCache(this.workload.platform);
+        this.classes = CtUtils.getAllClasses(this.workload.parsePlatform());
+        // Complete the types inheriting their missing members, as the generator would.
+        final InheritMissingMembersProcessor inheritMissing = new InheritMissingMembersProcessor();
+        for (final CtType<?> type : this.classes) {
+            final TypeContext ctx = new TypeContext(this.cache, type);
+            if (inheritMissing.isToBeProcessed(ctx)) {
+                inheritMissing.process(ctx);
+            }
+        }
+        // Load every common type before measuring validation alone.
+        if (MissingOverwriteProcessor.validateAll(this.cache, this.classes, this.threads, Integer.MAX_VALUE).anyErrors()) {
+            throw new IllegalStateException("The workload does not validate");
+        }
+    }
+
+    @Benchmark
+    public CtModel createCommonModel() {
+        final List<File> files = this.workload.commonFiles;
+        return LauncherContext.createCommonModel(files.get(0), files.subList(1, Math.min(files.size(), 25)),
+            ParsingProfile.FAST);
+    }
+
+    @Benchmark
+    public ValidationContext validateAll() {
+        return MissingOverwriteProcessor.validateAll(this.cache, this.classes, this.threads, Integer.MAX_VALUE);
+    }
+}
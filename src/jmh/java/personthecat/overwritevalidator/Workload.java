@@ -0,0 +1,188 @@
+package personthecat.overwritevalidator;
+
+import org.gradle.api.Project;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.testfixtures.ProjectBuilder;
+import spoon.Launcher;
+import spoon.reflect.CtModel;
+import spoon.support.compiler.FileSystemFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generates a synthetic pair of common and platform projects for the benchmarks.
+ * <p>
+ *   Every common type is overwritten by a platform type of the same name. Of these,
+ *   a configurable share inherit their missing members via
+ *   <code>@InheritMissingMembers</code> and another share inherit individual members
+ *   via <code>@Inherit</code>. The rest overwrite every member explicitly. The same
+ *   seed always produces the same sources.
+ * </p>
+ */
+public final class Workload {
+
+    private static final String ANNOTATIONS = "personthecat.overwritevalidator.annotations";
+    private static final int TYPES_PER_PACKAGE = 25;
+
+    public final File root;
+    public final Project common;
+    public final Project platform;
+    public final List<File> commonFiles = new ArrayList<>();
+    public final List<File> platformFiles = new ArrayList<>();
+
+    private final int members;
+    private final int depth;
+
+    private Workload(final File root, final int members, final int depth) {
+        this.root = root;
+        this.members = members;
+        this.depth = depth;
+        final Project parent = ProjectBuilder.builder().withProjectDir(root).withName("workload").build();
+        this.common = ProjectBuilder.builder().withParent(parent).withProjectDir(new File(root, "common")).withName("common").build();
+        this.platform = ProjectBuilder.builder().withParent(parent).withProjectDir(new File(root, "platform")).withName("platform").build();
+        this.common.getPluginManager().apply(JavaPlugin.class);
+        this.platform.getPluginManager().apply(JavaPlugin.class);
+    }
+
+    /**
+     * @param types The number of top-level types in each project.
+     * @param members The number of methods and fields declared by each type.
+     * @param depth The depth of nested types within each top-level type.
+     * @param inheritShare The share of platform types using each inheritance annotation.
+     */
+    public static Workload create(final int types, final int members, final int depth, final double inheritShare) {
+        final File root;
+        try {
+            root = Files.createTempDirectory("overwrite-validator-bench").toFile();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Creating workload", e);
+        }
+        final Workload workload = new Workload(root, members, depth);
+        final Random random = new Random(types * 31L + members);
+        for (int i = 0; i < types; i++) {
+            final String pkg = "bench.p" + (i / TYPES_PER_PACKAGE);
+            final String name = "Type" + i;
+            final double roll = random.nextDouble();
+            final Kind kind = roll < inheritShare ? Kind.INHERIT_MISSING : roll < inheritShare * 2 ? Kind.INHERIT : Kind.OVERWRITE;
+            workload.commonFiles.add(write(workload.common, pkg, name, workload.printCommon(pkg, name)));
+            workload.platformFiles.add(write(workload.platform, pkg, name, workload.printPlatform(pkg, name, kind)));
+        }
+        workload.platform.getPluginManager().apply(OverwriteValidator.class);
+        return workload;
+    }
+
+    /** Parses the platform sources, as is done before running the generator. */
+    public CtModel parsePlatform() {
+        final Launcher launcher = new Launcher();
+        ParsingProfile.FAST.configure(launcher.getEnvironment(), ParsingProfile.Phase.VALIDATE);
+        for (final File dir : LauncherContext.getMainSourceSet(this.platform)) {
+            launcher.addInputResource(new FileSystemFolder(dir));
+        }
+        return launcher.buildModel();
+    }
+
+    public void delete() {
+        try (final Stream<Path> paths = Files.walk(this.root.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Deleting workload", e);
+        }
+    }
+
+    private String printCommon(final String pkg, final String name) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(pkg).append(";\n\n");
+        sb.append("import java.util.List;\n");
+        sb.append("import ").append(ANNOTATIONS).append(".OverwriteTarget;\n\n");
+        sb.append("@OverwriteTarget\n");
+        this.printCommonType(sb, name, 0);
+        return sb.toString();
+    }
+
+    private void printCommonType(final StringBuilder sb, final String name, final int level) {
+        final String indent = indent(level);
+        sb.append(indent).append(level == 0 ? "public class " : "public static class ").append(name).append(" {\n");
+        for (int i = 0; i < this.members; i++) {
+            sb.append(indent).append("    public int field").append(i).append(" = ").append(i).append(";\n");
+            sb.append(indent).append("    public String method").append(i).append("(final List<String> values) {\n");
+            sb.append(indent).append("        return values.isEmpty() ? \"").append(name).append("\" : values.get(0) + ").append(i).append(";\n");
+            sb.append(indent).append("    }\n");
+        }
+        if (level < this.depth) {
+            this.printCommonType(sb, "Nested" + level, level + 1);
+        }
+        sb.append(indent).append("}\n");
+    }
+
+    private String printPlatform(final String pkg, final String name, final Kind kind) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(pkg).append(";\n\n");
+        sb.append("import java.util.List;\n");
+        sb.append("import ").append(ANNOTATIONS).append(".*;\n\n");
+        sb.append("@OverwriteClass\n");
+        if (kind == Kind.INHERIT_MISSING) {
+            sb.append("@InheritMissingMembers\n");
+        }
+        this.printPlatformType(sb, name, kind, 0);
+        return sb.toString();
+    }
+
+    private void printPlatformType(final StringBuilder sb, final String name, final Kind kind, final int level) {
+        final String indent = indent(level);
+        sb.append(indent).append(level == 0 ? "public class " : "public static class ").append(name).append(" {\n");
+        // Types inheriting their missing members only declare half of them.
+        final int declared = kind == Kind.INHERIT_MISSING ? this.members / 2 : this.members;
+        if (kind != Kind.INHERIT_MISSING) {
+            for (int i = 0; i < this.members; i++) {
+                sb.append(indent).append("    @Overwrite\n");
+                sb.append(indent).append("    public int field").append(i).append(" = ").append(-i).append(";\n");
+            }
+        }
+        for (int i = 0; i < declared; i++) {
+            final boolean inherit = kind == Kind.INHERIT && i % 2 == 0;
+            sb.append(indent).append(inherit ? "    @Inherit\n" : "    @Overwrite\n");
+            sb.append(indent).append("    public String method").append(i).append("(final List<String> values) {\n");
+            sb.append(indent).append(inherit ? "        throw new AssertionError();\n" : "        return \"platform\";\n");
+            sb.append(indent).append("    }\n");
+        }
+        if (level < this.depth) {
+            this.printPlatformType(sb, "Nested" + level, kind, level + 1);
+        }
+        sb.append(indent).append("}\n");
+    }
+
+    private static String indent(final int level) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < level; i++) {
+            sb.append("    ");
+        }
+        return sb.toString();
+    }
+
+    private static File write(final Project project, final String pkg, final String name, final String content) {
+        final File f = new File(project.getProjectDir(), "src/main/java/" + pkg.replace('.', '/') + "/" + name + ".java");
+        try {
+            Files.createDirectories(f.getParentFile().toPath());
+            Files.write(f.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Writing workload", e);
+        }
+        return f;
+    }
+
+    private enum Kind {
+        OVERWRITE,
+        INHERIT,
+        INHERIT_MISSING
+    }
+}
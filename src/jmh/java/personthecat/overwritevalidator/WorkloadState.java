@@ -0,0 +1,40 @@
+package personthecat.overwritevalidator;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The shape of the generated workload, shared by every benchmark. Each parameter
+ * may be overridden from the command line, e.g. <code>-p types=1000</code>.
+ */
+@State(Scope.Benchmark)
+public class WorkloadState {
+
+    @Param("200")
+    public int types;
+
+    @Param("10")
+    public int members;
+
+    @Param("1")
+    public int depth;
+
+    @Param("0.3")
+    public double inheritShare;
+
+    public Workload workload;
+
+    @Setup(Level.Trial)
+    public void createWorkload() {
+        this.workload = Workload.create(this.types, this.members, this.depth, this.inheritShare);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteWorkload() {
+        this.workload.delete();
+    }
+}
@@ -0,0 +1,70 @@
+package personthecat.overwritevalidator.processors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import personthecat.overwritevalidator.CtUtils;
+import personthecat.overwritevalidator.LauncherContext;
+import personthecat.overwritevalidator.TypeSignature;
+import personthecat.overwritevalidator.WorkloadState;
+import personthecat.overwritevalidator.processors.ImportRewriter.ImportData;
+import spoon.reflect.declaration.CtType;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures repairing the imports of every generated source. The sources are printed
+ * once, after running the whole pipeline, and are then rewritten in each invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImportRewriterBenchmark extends WorkloadState {
+
+    private final List<Printed> printed = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void printGenerated() {
+        final LauncherContext.Cache cache = LauncherContext.getCache(this.workload.platform);
+        final OverwritePipeline pipeline = OverwritePipeline.createDefault(cache, new HashSet<>());
+        for (final CtType<?> type : CtUtils.getAllClasses(this.workload.parsePlatform())) {
+            pipeline.process(type);
+            final String source = type.getFactory().getEnvironment().createPrettyPrinter().printTypes(type);
+            final TypeSignature overwritten = cache.getOverwrittenSignature(type);
+            if (overwritten != null && overwritten.getFile() != null) {
+                this.printed.add(new Printed(type, source, ImportRewriter.readImports(overwritten)));
+            }
+        }
+    }
+
+    @Benchmark
+    public void fixImports(final Blackhole blackhole) {
+        for (final Printed p : this.printed) {
+            blackhole.consume(ImportRewriter.rewrite(p.type, p.source, p.commonImports));
+        }
+    }
+
+    private static class Printed {
+        final CtType<?> type;
+        final String source;
+        final List<ImportData> commonImports;
+
+        Printed(final CtType<?> type, final String source, final List<ImportData> commonImports) {
+            this.type = type;
+            this.source = source;
+            this.commonImports = commonImports;
+        }
+    }
+}
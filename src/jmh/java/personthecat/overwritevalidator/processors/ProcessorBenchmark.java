@@ -0,0 +1,74 @@
+package personthecat.overwritevalidator.processors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import personthecat.overwritevalidator.CtUtils;
+import personthecat.overwritevalidator.LauncherContext;
+import personthecat.overwritevalidator.WorkloadState;
+import spoon.reflect.declaration.CtType;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each code generation stage on its own.
+ * <p>
+ *   Stages modify the platform model, so it is parsed again before every invocation
+ *   of {@link #stage}. The cost of parsing is not included in the results.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProcessorBenchmark extends WorkloadState {
+
+    @Param({"Inherit", "InheritMissingMembers", "OverwriteClass", "Overwrite"})
+    public String stageName;
+
+    private LauncherContext.Cache cache;
+    private OverwriteStage stage;
+    private List<CtType<?>> types;
+
+    @Setup(Level.Trial)
+    public void createStage() {
+        this.cache = LauncherContext.getCache(this.workload.platform);
+        this.stage = createStage(this.stageName);
+    }
+
+    @Setup(Level.Invocation)
+    public void parsePlatform() {
+        this.types = CtUtils.getAllClasses(this.workload.parsePlatform());
+    }
+
+    @Benchmark
+    public void stage(final Blackhole blackhole) {
+        for (final CtType<?> type : this.types) {
+            final TypeContext ctx = new TypeContext(this.cache, type);
+            if (this.stage.isToBeProcessed(ctx)) {
+                this.stage.process(ctx);
+                blackhole.consume(type);
+            }
+        }
+    }
+
+    private static OverwriteStage createStage(final String name) {
+        switch (name) {
+            case "Inherit": return new InheritProcessor();
+            case "InheritMissingMembers": return new InheritMissingMembersProcessor();
+            case "OverwriteClass": return new OverwriteClassProcessor();
+            case "Overwrite": return new OverwriteProcessor();
+            default: throw new IllegalArgumentException("Unknown stage: " + name);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package personthecat.overwritevalidator;
+
+import spoon.reflect.declaration.CtAnnotation;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.CtTypeMember;
+
+import javax.annotation.Nullable;
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Indexes the annotations of a top-level type and every member declared within it by
+ * name, so that repeated checks for an annotation are answered by a map lookup.
+ * <p>
+ *   As in {@link CtUtils#getAnnotation(CtType, CtElement, Class)}, an annotation is
+ *   matched either by its qualified name or, when Spoon could not resolve its import,
+ *   by its simple name within the package of the type being indexed. The names of each
+ *   annotation class are only computed once, so lookups do not allocate.
+ * </p>
+ * <p>
+ *   Every element of the type is indexed in a single pass when the index is created.
+ *   Any other element, e.g. a member of the common type, is indexed the first time it
+ *   is looked up. Annotations removed from an element must be removed through this
+ *   index so that they are not matched again. This object is not thread-safe.
+ * </p>
+ */
+public class AnnotationIndex {
+
+    /** The qualified and simple names of each annotation class. */
+    private static final ClassValue<String[]> NAMES = new ClassValue<String[]>() {
+        @Override
+        protected String[] computeValue(final Class<?> type) {
+            return new String[] { type.getName(), type.getSimpleName() };
+        }
+    };
+
+    private final String packageName;
+    private final Map<CtElement, Entry> elements = new IdentityHashMap<>();
+    private final Entry type;
+    private final Entry members = new Entry();
+
+    public AnnotationIndex(final CtType<?> type) {
+        this.packageName = type.getPackage().getQualifiedName();
+        this.type = this.index(type);
+        this.addMembers(type);
+    }
+
+    private void addMembers(final CtType<?> type) {
+        for (final CtTypeMember member : type.getTypeMembers()) {
+            this.members.putAll(this.index(member));
+            if (member instanceof CtType<?>) {
+                this.addMembers((CtType<?>) member);
+            }
+        }
+    }
+
+    /** Determines whether the indexed type itself is annotated with the given class. */
+    public boolean isAnnotated(final Class<? extends Annotation> a) {
+        return this.type.get(a) != null;
+    }
+
+    /**
+     * Determines whether any member of the indexed type or its nested types was
+     * annotated with the given class when the index was created.
+     */
+    public boolean anyMemberIsAnnotated(final Class<? extends Annotation> a) {
+        return this.members.get(a) != null;
+    }
+
+    /**
+     * Retrieves an annotation of the given element, if present.
+     *
+     * @param e Any element in the package of the indexed type.
+     * @param a The class of the annotation being researched.
+     * @return The actual annotation if present, or else <code>null</code>.
+     */
+    @Nullable
+    public CtAnnotation<?> getAnnotation(final CtElement e, final Class<? extends Annotation> a) {
+        return this.index(e).get(a);
+    }
+
+    public boolean hasAnnotation(final CtElement e, final Class<? extends Annotation> a) {
+        return this.getAnnotation(e, a) != null;
+    }
+
+    /** Removes an annotation from the given element and from this index. */
+    public void removeAnnotation(final CtElement e, @Nullable final CtAnnotation<?> a) {
+        if (a != null) {
+            e.removeAnnotation(a);
+            this.index(e).remove(a);
+        }
+    }
+
+    private Entry index(final CtElement e) {
+        Entry entry = this.elements.get(e);
+        if (entry == null) {
+            entry = new Entry();
+            for (final CtAnnotation<?> a : e.getAnnotations()) {
+                entry.put(this.packageName, a);
+            }
+            this.elements.put(e, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Scans the annotations of a single element without indexing them. Avoids creating
+     * any type references when the annotations will only be checked once.
+     */
+    @Nullable
+    static CtAnnotation<?> find(final String packageName, final CtElement e, final Class<? extends Annotation> a) {
+        final String[] names = NAMES.get(a);
+        CtAnnotation<?> local = null;
+        for (final CtAnnotation<?> annotation : e.getAnnotations()) {
+            final String name = annotation.getAnnotationType().getQualifiedName();
+            if (name.equals(names[0])) {
+                return annotation;
+            } else if (local == null && isLocal(name, packageName, names[1])) {
+                local = annotation;
+            }
+        }
+        return local;
+    }
+
+    private static boolean isLocal(final String name, final String packageName, final String simpleName) {
+        if (packageName.isEmpty()) {
+            return name.equals(simpleName);
+        }
+        return name.length() == packageName.length() + 1 + simpleName.length()
+            && name.startsWith(packageName) && name.charAt(packageName.length()) == '.' && name.endsWith(simpleName);
+    }
+
+    /** The annotations of one or more elements, by qualified and local simple name. */
+    private static class Entry {
+        Map<String, CtAnnotation<?>> qualified = Collections.emptyMap();
+        Map<String, CtAnnotation<?>> local = Collections.emptyMap();
+
+        void put(final String packageName, final CtAnnotation<?> a) {
+            final String name = a.getAnnotationType().getQualifiedName();
+            final String simpleName = a.getAnnotationType().getSimpleName();
+            this.qualified = putIfAbsent(this.qualified, name, a);
+            if (isLocal(name, packageName, simpleName)) {
+                this.local = putIfAbsent(this.local, simpleName, a);
+            }
+        }
+
+        void putAll(final Entry other) {
+            for (final Map.Entry<String, CtAnnotation<?>> a : other.qualified.entrySet()) {
+                this.qualified = putIfAbsent(this.qualified, a.getKey(), a.getValue());
+            }
+            for (final Map.Entry<String, CtAnnotation<?>> a : other.local.entrySet()) {
+                this.local = putIfAbsent(this.local, a.getKey(), a.getValue());
+            }
+        }
+
+        /** Most elements have no annotations, so their maps are only created when needed. */
+        private static Map<String, CtAnnotation<?>> putIfAbsent(
+                final Map<String, CtAnnotation<?>> map, final String name, final CtAnnotation<?> a) {
+            final Map<String, CtAnnotation<?>> m = map.isEmpty() ? new HashMap<>() : map;
+            m.putIfAbsent(name, a);
+            return m;
+        }
+
+        void remove(final CtAnnotation<?> a) {
+            this.qualified.values().remove(a);
+            this.local.values().remove(a);
+        }
+
+        @Nullable
+        CtAnnotation<?> get(final Class<? extends Annotation> a) {
+            final String[] names = NAMES.get(a);
+            final CtAnnotation<?> annotation = this.qualified.get(names[0]);
+            return annotation != null ? annotation : this.local.get(names[1]);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package personthecat.overwritevalidator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Validates any number of platforms against their common projects in a single JVM,
+ * without Gradle. The parsed common projects are shared by every platform which
+ * overwrites them, so validating many platforms of the same common project only
+ * parses it once.
+ * <p>
+ *   From the command line, each <code>--platform</code> begins a new platform. The
+ *   options which follow it apply to that platform only:
+ * </p>
+ * <pre>
+ *   --platform &lt;dirs&gt;  The source directories of the platform.
+ *   --name &lt;name&gt;      The name of the platform, as it appears in error messages.
+ *   --common &lt;dirs&gt;    The source directories of a common project. May be repeated
+ *                      for each layer, nearest first.
+ *   --output &lt;dir&gt;     Generates code into this directory.
+ *   --link             Hard-links unchanged sources into the output.
+ * </pre>
+ * <p>
+ *   Before the first platform, <code>--threads</code>, <code>--profile</code>,
+ *   <code>--max-errors</code>, and <code>--budget</code> configure the validation
+ *   threads, parsing profile, error limit, and common model budget of every
+ *   platform. <code>--metrics</code> prints a summary of the metrics of each
+ *   platform. Directories are separated by the system path separator. The process
+ *   exits with status 1 if any platform is invalid.
+ * </p>
+ */
+public final class BatchRunner {
+
+    private final CommonModels models;
+    private final boolean logMetrics;
+
+    public BatchRunner(final long modelBudget) {
+        this(modelBudget, false);
+    }
+
+    /**
+     * @param modelBudget The size of the common source files, in MiB, which may be
+     *                    held as fully parsed models.
+     * @param logMetrics Whether to print a summary of the metrics of each platform.
+     */
+    public BatchRunner(final long modelBudget, final boolean logMetrics) {
+        this.models = new CommonModels(modelBudget);
+        this.logMetrics = logMetrics;
+    }
+
+    /**
+     * Validates a single platform and, if enabled, generates its code. Errors are
+     * reported, but never thrown, so that the remaining platforms may still be run.
+     *
+     * @param platform The platform being processed.
+     * @param commonChain The source directories of each common project, nearest first.
+     * @return Whether the platform is valid.
+     */
+    public boolean run(final PlatformSettings platform, final List<? extends Collection<File>> commonChain) {
+        final Metrics metrics = Metrics.begin();
+        try {
+            final LauncherContext.Cache cache;
+            try (final Metrics.Phase ignored = Metrics.phase("common")) {
+                cache = LauncherContext.getCache(this.models, commonChain, platform.getParsingProfile());
+            }
+            final OutputSync output = platform.generateCode()
+                ? new OutputSync(platform.getOutputDirectory(), platform.isLinkSources(), null) : null;
+            LauncherContext.process(platform, cache, output);
+            return true;
+        } catch (final RuntimeException e) {
+            System.err.println(platform.getName() + ": " + e.getMessage());
+            return false;
+        } finally {
+            metrics.end();
+            if (this.logMetrics) {
+                System.out.println(platform.getName() + ": " + metrics.getSummary());
+            }
+        }
+    }
+
+    /** Releases every common project held by this runner. */
+    public void clear() {
+        this.models.clear();
+    }
+
+    public static void main(final String[] args) {
+        final List<Entry> entries = new ArrayList<>();
+        ParsingProfile profile = ParsingProfile.FAST;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxErrors = Integer.MAX_VALUE;
+        long budget = 8;
+        boolean logMetrics = false;
+        Entry entry = null;
+        for (int i = 0; i < args.length; i++) {
+            final String arg = args[i];
+            if ("--link".equals(arg)) {
+                requireEntry(entry, arg).link = true;
+                continue;
+            } else if ("--metrics".equals(arg)) {
+                logMetrics = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            final String value = args[++i];
+            switch (arg) {
+                case "--platform":
+                    entry = new Entry(splitPath(value));
+                    entries.add(entry);
+                    break;
+                case "--name":
+                    requireEntry(entry, arg).name = value;
+                    break;
+                case "--common":
+                    requireEntry(entry, arg).commonChain.add(splitPath(value));
+                    break;
+                case "--output":
+                    requireEntry(entry, arg).output = new File(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--profile":
+                    profile = ParsingProfile.from(value);
+                    break;
+                case "--max-errors":
+                    maxErrors = Integer.parseInt(value);
+                    break;
+                case "--budget":
+                    budget = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("No platforms given");
+        }
+        final BatchRunner runner = new BatchRunner(budget, logMetrics);
+        boolean valid = true;
+        for (final Entry e : entries) {
+            final PlatformSettings settings = new PlatformSettings(e.name != null ? e.name : e.sources.toString(), e.sources)
+                .parsingProfile(profile)
+                .validationThreads(threads)
+                .maxErrors(maxErrors);
+            if (e.output != null) {
+                settings.generateCode(e.output);
+            }
+            if (e.link) {
+                settings.linkSources();
+            }
+            valid &= runner.run(settings, e.commonChain);
+        }
+        if (!valid) {
+            System.exit(1);
+        }
+    }
+
+    private static Entry requireEntry(final Entry entry, final String arg) {
+        if (entry == null) {
+            throw new IllegalArgumentException(arg + " must follow --platform");
+        }
+        return entry;
+    }
+
+    private static List<File> splitPath(final String path) {
+        final List<File> files = new ArrayList<>();
+        for (final String s : path.split(File.pathSeparator)) {
+            if (!s.isEmpty()) {
+                files.add(new File(s));
+            }
+        }
+        return files;
+    }
+
+    private static class Entry {
+        final List<File> sources;
+        final List<List<File>> commonChain = new ArrayList<>();
+        String name;
+        File output;
+        boolean link;
+
+        Entry(final List<File> sources) {
+            this.sources = sources;
+        }
+    }
+}
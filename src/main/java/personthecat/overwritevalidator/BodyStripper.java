@@ -0,0 +1,156 @@
+package personthecat.overwritevalidator;
+
+import personthecat.overwritevalidator.JavaLexer.Token;
+import personthecat.overwritevalidator.JavaLexer.TokenType;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Removes the bodies of every method and constructor in a Java source file so that
+ * its signatures can be parsed without building a model of its statements.
+ * <p>
+ *   Each body is replaced with <code>throw null;</code>, which satisfies the compiler
+ *   for any return type and for final fields, and the original line breaks are kept
+ *   so that source positions still point to the correct lines. Field initializers,
+ *   initializer blocks, annotation values, and enum constant arguments are kept.
+ * </p>
+ */
+public final class BodyStripper {
+
+    private BodyStripper() {}
+
+    /**
+     * Strips the bodies from a single compilation unit. Sources which cannot be
+     * understood are returned as-is and will be reported by the compiler instead.
+     *
+     * @param source The raw contents of a Java source file.
+     * @return The same source with every method and constructor body emptied.
+     */
+    public static String stripBodies(final String source) {
+        final List<Token> tokens = JavaLexer.tokenize(source);
+        final StringBuilder sb = new StringBuilder(source.length());
+        final Deque<Scope> scopes = new ArrayDeque<>();
+        Scope scope = new Scope(ScopeType.TYPE);
+        Header header = new Header();
+        int copied = 0;
+        int parens = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            final Token token = tokens.get(i);
+            if (scope.type == ScopeType.OTHER) {
+                if (token.is(source, "{")) {
+                    scopes.push(scope);
+                    scope = new Scope(ScopeType.OTHER);
+                } else if (token.is(source, "}")) {
+                    scope = scopes.isEmpty() ? new Scope(ScopeType.TYPE) : scopes.pop();
+                    header = new Header();
+                }
+                continue;
+            }
+            if (token.is(source, "(")) {
+                parens++;
+            } else if (token.is(source, ")")) {
+                parens = Math.max(0, parens - 1);
+                header.parameters |= parens == 0;
+            } else if (parens > 0) {
+                if (token.is(source, "{")) {
+                    scopes.push(scope);
+                    scope = new Scope(ScopeType.OTHER);
+                }
+            } else if (token.is(source, ";")) {
+                scope.constants = false;
+                header = new Header();
+            } else if (token.is(source, "=")) {
+                header.assignment = true;
+            } else if (token.is(source, "default")) {
+                header.defaultValue |= header.parameters;
+            } else if (token.is(source, "}")) {
+                scope = scopes.isEmpty() ? new Scope(ScopeType.TYPE) : scopes.pop();
+                header = new Header();
+            } else if (token.is(source, "{")) {
+                scopes.push(scope);
+                if (header.typeKeyword != null) {
+                    scope = new Scope(header.typeKeyword);
+                } else if (scope.constants) {
+                    scope = new Scope(ScopeType.TYPE);
+                } else if (header.parameters && !header.assignment && !header.defaultValue) {
+                    final int end = findClosingBrace(source, tokens, i);
+                    if (end < 0) {
+                        return source;
+                    }
+                    sb.append(source, copied, token.getEnd()).append("throw null;");
+                    appendLineBreaks(sb, source, token.getEnd(), tokens.get(end).getStart());
+                    copied = tokens.get(end).getStart();
+                    scope = scopes.pop();
+                    i = end;
+                } else {
+                    scope = new Scope(ScopeType.OTHER);
+                }
+                header = new Header();
+            } else if (token.getType() == TokenType.IDENTIFIER && isTypeKeyword(source, tokens, i)) {
+                header.typeKeyword = token.is(source, "enum") ? ScopeType.ENUM : ScopeType.TYPE;
+            }
+        }
+        return sb.append(source, copied, source.length()).toString();
+    }
+
+    private static boolean isTypeKeyword(final String source, final List<Token> tokens, final int i) {
+        final Token token = tokens.get(i);
+        if (i > 0 && tokens.get(i - 1).is(source, ".")) {
+            return false;
+        }
+        if (token.is(source, "class") || token.is(source, "interface") || token.is(source, "enum")) {
+            return true;
+        }
+        // record is only a keyword when it is followed by the name of the type.
+        return token.is(source, "record") && i + 1 < tokens.size() && tokens.get(i + 1).getType() == TokenType.IDENTIFIER;
+    }
+
+    private static int findClosingBrace(final String source, final List<Token> tokens, final int open) {
+        int depth = 0;
+        for (int i = open; i < tokens.size(); i++) {
+            final Token token = tokens.get(i);
+            if (token.is(source, "{")) {
+                depth++;
+            } else if (token.is(source, "}") && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void appendLineBreaks(final StringBuilder sb, final String source, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            final char c = source.charAt(i);
+            if (c == '\n' || c == '\r') {
+                sb.append(c);
+            }
+        }
+    }
+
+    private enum ScopeType {
+        TYPE,
+        ENUM,
+        OTHER
+    }
+
+    /** A pair of braces which the stripper has descended into. */
+    private static class Scope {
+        final ScopeType type;
+        boolean constants;
+
+        Scope(final ScopeType type) {
+            this.type = type;
+            this.constants = type == ScopeType.ENUM;
+        }
+    }
+
+    /** Everything known about the member being declared since the last separator. */
+    private static class Header {
+        ScopeType typeKeyword;
+        boolean parameters;
+        boolean assignment;
+        boolean defaultValue;
+    }
+}
@@ -0,0 +1,51 @@
+package personthecat.overwritevalidator;
+
+import org.gradle.api.Project;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Holds the cached data of every common project for the duration of a build. The
+ * data is shared by every platform in the build and is released when the build
+ * finishes, so a long-lived daemon never serves a stale model or holds onto one
+ * between builds. The persistent signature cache may be used to avoid parsing the
+ * common project again in the next build.
+ */
+public abstract class CommonModelService implements BuildService<CommonModelService.Params>, AutoCloseable {
+
+    /** The name under which this service is registered with Gradle. */
+    public static final String NAME = "overwriteValidatorCommonModels";
+
+    private final CommonModels models = new CommonModels(this.getParameters().getModelBudget().get());
+
+    public interface Params extends BuildServiceParameters {
+
+        /** The size of the common source files, in MiB, which may be held as fully parsed models. */
+        Property<Long> getModelBudget();
+    }
+
+    /**
+     * Registers this service with the build, unless it is already registered. The
+     * budget is taken from the first project to register it.
+     */
+    public static Provider<CommonModelService> register(final Project project) {
+        final OverwriteValidatorExtension config = OverwriteValidatorExtension.get(project);
+        return project.getGradle().getSharedServices().registerIfAbsent(NAME, CommonModelService.class, spec ->
+            spec.getParameters().getModelBudget().set(project.provider(() -> (long) config.getCommonModelBudget())));
+    }
+
+    public static CommonModelService get(final Project project) {
+        return register(project).get();
+    }
+
+    public CommonModels getModels() {
+        return this.models;
+    }
+
+    @Override
+    public void close() {
+        this.models.clear();
+    }
+}
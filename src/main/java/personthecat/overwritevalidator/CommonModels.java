@@ -0,0 +1,131 @@
+package personthecat.overwritevalidator;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Holds the cached data of every common project which has been loaded, so that it may
+ * be shared by every platform overwriting it.
+ * <p>
+ *   Each layer is loaded once, outside of any lock shared with the other layers, and
+ *   is then returned without touching its sources again. A layer is only reloaded
+ *   after its sources have been {@link #invalidate invalidated}, e.g. by a watcher,
+ *   or after its parent layer has been reloaded. Fully parsed models are subject to
+ *   a {@link ModelBudget} shared by every layer.
+ * </p>
+ */
+public final class CommonModels {
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private final Map<String, Layer> layers = new ConcurrentHashMap<>();
+    private final ModelBudget budget;
+
+    /**
+     * @param budget The size of the common source files, in MiB, which may be held as
+     *               fully parsed models. This is not a limit on the heap.
+     */
+    public CommonModels(final long budget) {
+        this.budget = new ModelBudget(budget * MEGABYTE);
+    }
+
+    /**
+     * Gets the cached data of a single common project, creating it if it has not been
+     * loaded or has been invalidated since it was loaded.
+     *
+     * @param key Uniquely identifies the common project, e.g. its directory.
+     * @param sources The source directories of the common project.
+     * @param parent The cached data of its parent layer, if any.
+     * @param factory Creates the data for this layer within the given budget.
+     * @return The data of this layer.
+     */
+    LauncherContext.Cache getLayer(final String key, final Collection<File> sources, @Nullable final LauncherContext.Cache parent,
+            final Function<ModelBudget, LauncherContext.Cache> factory) {
+        while (true) {
+            final Layer layer = this.layers.computeIfAbsent(key, k -> new Layer(sources, parent));
+            if (layer.parent == parent) {
+                return layer.get(() -> factory.apply(this.budget));
+            } else if (this.layers.remove(key, layer)) {
+                this.release(layer);
+            }
+        }
+    }
+
+    /**
+     * Releases every layer containing any of the given files or directories, so that
+     * it will be loaded again the next time it is requested.
+     *
+     * @param changed The absolute paths of every file or directory which changed.
+     */
+    public void invalidate(final Collection<Path> changed) {
+        for (final Map.Entry<String, Layer> entry : this.layers.entrySet()) {
+            if (entry.getValue().contains(changed) && this.layers.remove(entry.getKey(), entry.getValue())) {
+                this.release(entry.getValue());
+            }
+        }
+    }
+
+    private void release(final Layer layer) {
+        final LauncherContext.Cache cache = layer.cache;
+        if (cache != null) {
+            this.budget.removeAll(cache.models);
+        }
+    }
+
+    /** Releases every layer. */
+    public void clear() {
+        this.layers.clear();
+        this.budget.clear();
+    }
+
+    /**
+     * Lazily creates the data of a single layer. Each layer is locked independently so
+     * that unrelated layers may be loaded in parallel.
+     */
+    private static class Layer {
+        final List<Path> sources = new ArrayList<>();
+        @Nullable final LauncherContext.Cache parent;
+        @Nullable volatile LauncherContext.Cache cache;
+
+        Layer(final Collection<File> sources, @Nullable final LauncherContext.Cache parent) {
+            for (final File dir : sources) {
+                this.sources.add(dir.toPath().toAbsolutePath().normalize());
+            }
+            this.parent = parent;
+        }
+
+        LauncherContext.Cache get(final Supplier<LauncherContext.Cache> factory) {
+            LauncherContext.Cache cache = this.cache;
+            if (cache == null) {
+                synchronized (this) {
+                    cache = this.cache;
+                    if (cache == null) {
+                        cache = factory.get();
+                        this.cache = cache;
+                    }
+                }
+            }
+            return cache;
+        }
+
+        /** Determines whether any of the given paths is, contains, or is within a source. */
+        boolean contains(final Collection<Path> paths) {
+            for (final Path p : paths) {
+                for (final Path dir : this.sources) {
+                    if (p.startsWith(dir) || dir.startsWith(p)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
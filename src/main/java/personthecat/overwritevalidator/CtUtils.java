@@ -6,16 +6,18 @@ import spoon.reflect.declaration.CtAnnotation;
 import spoon.reflect.declaration.CtClass;
 import spoon.reflect.declaration.CtConstructor;
 import spoon.reflect.declaration.CtElement;
-import spoon.reflect.declaration.CtExecutable;
 import spoon.reflect.declaration.CtField;
 import spoon.reflect.declaration.CtMethod;
-import spoon.reflect.declaration.CtModifiable;
 import spoon.reflect.declaration.CtPackage;
 import spoon.reflect.declaration.CtParameter;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.declaration.CtTypeMember;
+import spoon.reflect.declaration.ModifierKind;
 import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtArrayTypeReference;
+import spoon.reflect.reference.CtTypeParameterReference;
 import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.reference.CtWildcardReference;
 
 import javax.annotation.Generated;
 import javax.annotation.Nullable;
@@ -29,6 +31,10 @@ public final class CtUtils {
 
     private static final Factory FACTORY = new Launcher().getFactory();
     private static final String STRING_TYPE = "java.lang.String";
+    private static final String OBJECT_TYPE = "java.lang.Object";
+
+    /** Marks a type variable in a generic name, since it cannot be compared by name. */
+    private static final char TYPE_VARIABLE = '\'';
 
     private CtUtils() {}
 
@@ -52,28 +58,28 @@ public final class CtUtils {
         return Collections.emptySet();
     }
 
-    public static List<CtTypeMember> getPublicMembers(final CtType<?> ctClass) {
-        final List<CtTypeMember> members = new ArrayList<>();
-        for (final CtMethod<?> method : ctClass.getMethods()) {
-            if (!method.isPrivate()) {
+    public static List<MemberSignature> getPublicMembers(final TypeSignature type) {
+        final List<MemberSignature> members = new ArrayList<>();
+        for (final MemberSignature method : type.getMembers()) {
+            if (method.getKind() == MemberSignature.Kind.METHOD && !method.isPrivate()) {
                 members.add(method);
             }
         }
-        for (final CtField<?> field : ctClass.getFields()) {
-            if (!field.isPrivate() && !isConstant(field)) {
+        for (final MemberSignature field : type.getMembers()) {
+            if (field.getKind() == MemberSignature.Kind.FIELD && !field.isPrivate() && !field.isConstant()) {
                 members.add(field);
             }
         }
-        for (final CtType<?> nested : ctClass.getNestedTypes()) {
+        for (final TypeSignature nested : type.getNestedTypes()) {
             members.addAll(getPublicMembers(nested));
         }
         return members;
     }
 
-    public static List<CtField<?>> getPublicConstants(final CtType<?> ctClass) {
-        final List<CtField<?>> constants = new ArrayList<>();
-        for (final CtField<?> field : ctClass.getFields()) {
-            if (!field.isPrivate() && isConstant(field)) {
+    public static List<MemberSignature> getPublicConstants(final TypeSignature type) {
+        final List<MemberSignature> constants = new ArrayList<>();
+        for (final MemberSignature field : type.getMembers()) {
+            if (field.getKind() == MemberSignature.Kind.FIELD && !field.isPrivate() && field.isConstant()) {
                 constants.add(field);
             }
         }
@@ -84,23 +90,19 @@ public final class CtUtils {
         return field.getType().isPrimitive() || STRING_TYPE.equals(field.getType().getQualifiedName());
     }
 
+    /**
+     * Locates the method in the common type which a platform method overwrites. The
+     * common methods are compared by their signatures, so the common model is never
+     * resolved.
+     *
+     * @param overwritten The common type being overwritten.
+     * @param child A method in the platform model.
+     * @param hierarchy The supertypes of the types in the platform model.
+     */
     @Nullable
-    public static CtTypeMember getOverriddenMember(final CtType<?> overwritten, final CtTypeMember child) {
-        if (child instanceof CtMethod<?>) {
-            return getOverriddenMethod(overwritten, (CtMethod<?>) child);
-        } else if (child instanceof CtField<?>) {
-            return getOverriddenField(overwritten, (CtField<?>) child);
-        } else if (child instanceof CtConstructor<?>) {
-            return getOverriddenConstructor(overwritten, (CtConstructor<?>) child);
-        } else {
-            throw new UnsupportedOperationException("Must be a field or method");
-        }
-    }
-
-    @Nullable
-    public static CtMethod<?> getOverriddenMethod(final CtType<?> overwritten, final CtMethod<?> child) {
+    public static CtMethod<?> getOverriddenMethod(final CtType<?> overwritten, final CtMethod<?> child, final TypeHierarchy hierarchy) {
         for (final CtMethod<?> parent : overwritten.getMethodsByName(child.getSimpleName())) {
-            if (canOverrideMethod(child, parent)) {
+            if (MemberIndex.canOverride(hierarchy, child, MemberSignature.of(parent))) {
                 return parent;
             }
         }
@@ -113,92 +115,126 @@ public final class CtUtils {
     }
 
     @Nullable
-    public static CtConstructor<?> getOverriddenConstructor(final CtType<?> overwritten, final CtConstructor<?> child) {
+    public static CtConstructor<?> getOverriddenConstructor(final CtType<?> overwritten, final CtConstructor<?> child,
+            final TypeHierarchy hierarchy) {
         for (final CtConstructor<?> parent : getConstructors(overwritten)) {
-            if (canOverrideExecutable(child, parent)) {
+            if (MemberIndex.canOverride(hierarchy, child, MemberSignature.of(parent))) {
                 return parent;
             }
         }
         return null;
     }
 
-    public static boolean classOverridesMember(final CtType<?> type, final CtTypeMember parent) {
-        if (parent instanceof CtMethod<?>) {
-            return classOverridesMethod(type, (CtMethod<?>) parent);
-        } else if (parent instanceof CtField<?>) {
-            return classOverridesField(type, (CtField<?>) parent);
-        } else if (parent instanceof CtConstructor<?>) {
-            return classOverridesConstructor(type, (CtConstructor<?>) parent);
-        } else {
-            throw new UnsupportedOperationException("Must be a field or method");
-        }
-    }
-
-    public static boolean classOverridesMethod(final CtType<?> type, final CtMethod<?> parent) {
-        for (final CtMethod<?> child : type.getMethods()) {
-            if (canOverrideMethod(child, parent)) {
-                return true;
+    /**
+     * Renders a type with all of its type arguments, e.g.
+     * <code>java.util.List&lt;java.lang.String&gt;</code>. Unlike the qualified name,
+     * this can tell apart two parameterizations of the same class.
+     */
+    public static String getGenericName(final CtTypeReference<?> type) {
+        if (type instanceof CtWildcardReference) {
+            final CtWildcardReference wildcard = (CtWildcardReference) type;
+            final CtTypeReference<?> bound = wildcard.getBoundingType();
+            if (bound == null || (wildcard.isUpper() && OBJECT_TYPE.equals(bound.getQualifiedName()))) {
+                return "?";
             }
+            return (wildcard.isUpper() ? "? extends " : "? super ") + getGenericName(bound);
+        } else if (type instanceof CtTypeParameterReference) {
+            return TYPE_VARIABLE + type.getSimpleName();
+        } else if (type instanceof CtArrayTypeReference<?>) {
+            return getGenericName(((CtArrayTypeReference<?>) type).getComponentType()) + "[]";
         }
-        return false;
+        final List<CtTypeReference<?>> arguments = type.getActualTypeArguments();
+        if (arguments.isEmpty()) {
+            return type.getQualifiedName();
+        }
+        final StringBuilder sb = new StringBuilder(type.getQualifiedName()).append('<');
+        for (int i = 0; i < arguments.size(); i++) {
+            sb.append(i > 0 ? "," : "").append(getGenericName(arguments.get(i)));
+        }
+        return sb.append('>').toString();
     }
 
-    public static boolean classOverridesField(final CtType<?> type, final CtField<?> parent) {
-        for (final CtField<?> child : type.getFields()) {
-            if (canOverrideField(child, parent)) {
-                return true;
+    /**
+     * Determines whether the type arguments of a child type are compatible with those
+     * of a parent type, which are ignored when comparing erased names. Arguments are
+     * only compared when both sides are the same generic class, since they cannot be
+     * mapped onto the arguments of a supertype by name. Wildcards, type variables, and
+     * raw types are compatible with any argument.
+     *
+     * @param child The generic name of a type in the platform model.
+     * @param parent The generic name of the type in the common project.
+     * @return <code>false</code> if the types have conflicting type arguments.
+     */
+    static boolean hasCompatibleArguments(final String child, final String parent) {
+        if (child.equals(parent) || !getErasure(child).equals(getErasure(parent))) {
+            return true;
+        }
+        final List<String> childArguments = getTypeArguments(child);
+        final List<String> parentArguments = getTypeArguments(parent);
+        if (childArguments.size() != parentArguments.size()) {
+            return childArguments.isEmpty() || parentArguments.isEmpty();
+        }
+        for (int i = 0; i < childArguments.size(); i++) {
+            if (!argumentsMatch(childArguments.get(i), parentArguments.get(i))) {
+                return false;
             }
         }
-        return false;
+        return true;
     }
 
-    public static boolean classOverridesConstructor(final CtType<?> type, final CtConstructor<?> parent) {
-        for (final CtConstructor<?> child : getConstructors(type)) {
-            if (canOverrideExecutable(child, parent)) {
-                return true;
-            }
+    /** Type arguments are invariant, so they must match unless either is open. */
+    private static boolean argumentsMatch(final String child, final String parent) {
+        if (child.equals(parent) || isOpenArgument(child) || isOpenArgument(parent)) {
+            return true;
         }
-        return false;
+        return getErasure(child).equals(getErasure(parent)) && hasCompatibleArguments(child, parent);
     }
 
-    public static boolean canOverrideMethod(final CtMethod<?> child, final CtMethod<?> parent) {
-        if (!child.getSimpleName().equals(parent.getSimpleName())) {
-            return false;
-        }
-        return canOverrideExecutable(child, parent);
+    private static boolean isOpenArgument(final String argument) {
+        return argument.charAt(0) == '?' || argument.charAt(0) == TYPE_VARIABLE;
     }
 
-    public static boolean canOverrideField(final CtField<?> child, final CtField<?> parent) {
-        if (!child.getSimpleName().equals(parent.getSimpleName())) {
-            return false;
+    private static String getErasure(final String genericName) {
+        final int start = genericName.indexOf('<');
+        if (start < 0) {
+            return genericName;
         }
-        return isAssignableTo(child.getType(), parent.getType());
+        return genericName.substring(0, start) + genericName.substring(genericName.lastIndexOf('>') + 1);
     }
 
-    public static boolean canOverrideExecutable(final CtExecutable<?> child, final CtExecutable<?> parent) {
-        final List<CtParameter<?>> childParams = child.getParameters();
-        final List<CtParameter<?>> parentParams = parent.getParameters();
-        if (childParams.size() != parentParams.size()) {
-            return false;
+    private static List<String> getTypeArguments(final String genericName) {
+        final int start = genericName.indexOf('<');
+        if (start < 0) {
+            return Collections.emptyList();
         }
-        for (int i = 0; i < childParams.size(); i++) {
-            if (!isAssignableTo(childParams.get(i).getType(), parentParams.get(i).getType())) {
-                return false;
+        final List<String> arguments = new ArrayList<>();
+        final int end = genericName.lastIndexOf('>');
+        int depth = 0;
+        int last = start + 1;
+        for (int i = start + 1; i < end; i++) {
+            final char c = genericName.charAt(i);
+            if (c == '<') {
+                depth++;
+            } else if (c == '>') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                arguments.add(genericName.substring(last, i));
+                last = i + 1;
             }
         }
-        return isAssignableTo(child.getType(), parent.getType());
+        arguments.add(genericName.substring(last, end));
+        return arguments;
     }
 
-    public static boolean isAssignableTo(final CtTypeReference<?> child, final CtTypeReference<?> parent) {
-        return child.isSubtypeOf(parent);
+    public static boolean hasMoreRestrictiveAccess(final CtTypeMember child, final MemberSignature parent) {
+        return getVisibilityScale(child.getVisibility()) < getVisibilityScale(parent.getVisibility());
     }
 
-    public static boolean hasMoreRestrictiveAccess(final CtTypeMember child, final CtTypeMember parent) {
-        return getVisibilityScale(child) < getVisibilityScale(parent);
-    }
-
-    private static int getVisibilityScale(final CtModifiable element) {
-        switch (element.getVisibility()) {
+    private static int getVisibilityScale(@Nullable final ModifierKind visibility) {
+        if (visibility == null) {
+            return 2;
+        }
+        switch (visibility) {
             case PUBLIC: return 4;
             case PROTECTED: return 3;
             case PRIVATE: return 1;
@@ -206,7 +242,7 @@ public final class CtUtils {
         }
     }
 
-    public static boolean hasDifferentAccessType(final CtTypeMember child, final CtTypeMember parent) {
+    public static boolean hasDifferentAccessType(final CtTypeMember child, final MemberSignature parent) {
         return child.isStatic() != parent.isStatic();
     }
 
@@ -222,6 +258,10 @@ public final class CtUtils {
      *   imports. We achieve this by assuming the types are equivalent if one is declared
      *   in the current package (according to Spoon).
      * </p>
+     * <p>
+     *   Annotations which are checked repeatedly should be looked up through an
+     *   {@link AnnotationIndex} instead.
+     * </p>
      * @param type The declaring type which contains this element.
      * @param e The element to get the annotation from.
      * @param a The class of the annotation be researched.
@@ -230,13 +270,7 @@ public final class CtUtils {
      */
     @Nullable
     public static <A extends Annotation> CtAnnotation<?> getAnnotation(final CtType<?> type, final CtElement e, final Class<A> a) {
-        final CtTypeReference<A> normal = FACTORY.createCtTypeReference(a);
-        final CtAnnotation<A> annotation = e.getAnnotation(normal);
-        if (annotation != null) {
-            return annotation;
-        }
-        final CtTypeReference<A> fromPack = normal.setPackage(type.getPackage().getReference());
-        return e.getAnnotation(fromPack);
+        return AnnotationIndex.find(type.getPackage().getQualifiedName(), e, a);
     }
 
     public static <A extends Annotation> boolean hasAnnotation(final CtType<?> type, final CtElement e, final Class<A> a) {
@@ -279,6 +313,21 @@ public final class CtUtils {
         }
     }
 
+    public static String formatMember(final String prefix, final MemberSignature member) {
+        if (member.getKind() == MemberSignature.Kind.FIELD) {
+            return prefix + '#' + member.getSimpleName() + " -> " + member.getTypeDisplay();
+        }
+        final StringBuilder sb = new StringBuilder(prefix)
+            .append('#')
+            .append(member.getSimpleName())
+            .append('(');
+        for (final String param : member.getParameterDisplays()) {
+            sb.append(',').append(param);
+        }
+        sb.append(") -> ").append(member.getTypeDisplay());
+        return sb.toString();
+    }
+
     public static String formatField(final String prefix, final CtField<?> field) {
         final String type = field.getType().toStringDebug();
         return prefix + '#' + field.getSimpleName() + " -> " + type;
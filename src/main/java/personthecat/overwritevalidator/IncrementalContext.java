@@ -0,0 +1,423 @@
+package personthecat.overwritevalidator;
+
+import org.gradle.api.Project;
+import personthecat.overwritevalidator.processors.MissingOverwriteProcessor;
+import personthecat.overwritevalidator.processors.MissingOverwriteProcessor.ValidationContext;
+import personthecat.overwritevalidator.processors.OverwriteTargetProcessor;
+import spoon.Launcher;
+import spoon.reflect.CtModel;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.support.compiler.FileSystemFile;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Processes only the platform files which have changed since the previous build.
+ * <p>
+ *   Every platform file is fingerprinted along with its counterparts in the common
+ *   project. Files are processed again when either fingerprint changes or when they
+ *   reference, directly or through other files, a type declared in a file which is
+ *   being processed. The results of validating all other files are replayed from the
+ *   previous build and their generated outputs are left untouched.
+ * </p>
+ * <p>
+ *   Every file which the processed files depend on, directly or indirectly, is
+ *   parsed along with them without its method bodies, so that their types resolve
+ *   exactly as they would in a full build.
+ * </p>
+ */
+public final class IncrementalContext {
+
+    /** The version of the {@link State} format. */
+    private static final int FORMAT_VERSION = 5;
+
+    /** The location of the state file, relative to the platform project's build dir. */
+    private static final String STATE_PATH = "overwriteValidator/incremental.bin";
+
+    /** A placeholder hash for common files which do not exist. */
+    private static final String ABSENT = "";
+
+    private IncrementalContext() {}
+
+    public static File getStateFile(final Project project) {
+        return new File(project.getBuildDir(), STATE_PATH);
+    }
+
+    /**
+     * Processes the given project with the settings of its extension. Callers which
+     * already know which files have changed, e.g. from watching the file system, may
+     * pass them along, in which case only the changed files are hashed again and the
+     * state of the previous build is kept in memory.
+     *
+     * @param project The platform project which the plugin has been applied to.
+     * @param session The state carried over from the previous call.
+     * @param changed Every file or directory which changed since the previous call,
+     *                or <code>null</code> to check every file.
+     */
+    public static void process(final Project project, final Session session, @Nullable final Set<Path> changed) {
+        final PlatformSettings settings = PlatformSettings.of(project);
+        final OutputSync output = settings.generateCode() ? OutputSync.of(project) : null;
+        process(settings, LauncherContext.getCache(project), output, getStateFile(project), session, changed);
+    }
+
+    /**
+     * Variant of {@link #process(Project, Session, Set)} for callers which resolved
+     * the platform ahead of time, e.g. when the build was configured.
+     *
+     * @param settings The platform being processed.
+     * @param cache The data of the common project being overwritten.
+     * @param output The output directory to which the sources will be written, if any.
+     * @param stateFile The file in which the state of each build is persisted.
+     * @param session The state carried over from the previous call.
+     * @param changed Every file or directory which changed since the previous call,
+     *                or <code>null</code> to check every file.
+     */
+    public static void process(final PlatformSettings settings, final LauncherContext.Cache cache, @Nullable final OutputSync output,
+            final File stateFile, final Session session, @Nullable final Set<Path> changed) {
+        final String fingerprint = getSettings(settings, cache);
+        final VersionedFile<State> persisted = new VersionedFile<>(stateFile, State.class, FORMAT_VERSION, "incremental state");
+        State previous = session.state != null ? session.state : persisted.read();
+        final boolean reset = previous == null || !previous.settings.equals(fingerprint);
+        if (reset) {
+            previous = new State(fingerprint);
+        }
+        final Set<File> sources = settings.getSources();
+        final Set<File> commonSources = LauncherContext.getCommonSourceSet(cache);
+        final Map<String, String> relativePaths = new HashMap<>();
+        final Map<String, String> hashes = new TreeMap<>();
+        final Map<String, Map<String, String>> commonHashes = new HashMap<>();
+        for (final File dir : sources) {
+            for (final Path p : SignatureCache.listJavaFiles(dir.toPath())) {
+                final String path = p.toAbsolutePath().toString();
+                final String relative = dir.toPath().relativize(p).toString();
+                final FileState old = previous.files.get(path);
+                relativePaths.put(path, relative);
+                if (old != null && changed != null && !isChanged(changed, p) && !anyChanged(changed, old.commonHashes.keySet())) {
+                    hashes.put(path, old.hash);
+                    commonHashes.put(path, old.commonHashes);
+                } else {
+                    hashes.put(path, SignatureCache.hash(p));
+                    commonHashes.put(path, hashCommonFiles(commonSources, relative, old));
+                }
+            }
+        }
+        final Set<String> dirty = new TreeSet<>();
+        final Set<String> changedTypes = new HashSet<>();
+        for (final Map.Entry<String, String> entry : hashes.entrySet()) {
+            final String path = entry.getKey();
+            final FileState old = previous.files.get(path);
+            if (old == null || !old.hash.equals(entry.getValue()) || !old.commonHashes.equals(commonHashes.get(path))
+                    || (settings.generateCode() && !old.declaredTypes.isEmpty() && !outputExists(settings, relativePaths.get(path)))) {
+                dirty.add(path);
+                if (old != null) {
+                    changedTypes.addAll(old.declaredTypes);
+                }
+                changedTypes.addAll(SourceIndex.getDeclaredTypes(SourceIndex.readFile(new File(path))));
+            }
+        }
+        final List<String> removed = new ArrayList<>();
+        for (final Map.Entry<String, FileState> entry : previous.files.entrySet()) {
+            if (!hashes.containsKey(entry.getKey())) {
+                removed.add(entry.getKey());
+                changedTypes.addAll(entry.getValue().declaredTypes);
+                if (settings.generateCode()) {
+                    deleteOutput(settings, entry.getValue().relativePath);
+                }
+            }
+        }
+        propagateChanges(previous, hashes.keySet(), dirty, changedTypes);
+        final State current = new State(fingerprint);
+        for (final String path : hashes.keySet()) {
+            if (!dirty.contains(path)) {
+                current.files.put(path, previous.files.get(path));
+            }
+        }
+        if (!dirty.isEmpty()) {
+            final Map<String, List<CtType<?>>> types = processFiles(settings, cache, output, previous, dirty);
+            if (settings.generateCode()) {
+                Objects.requireNonNull(output, "No output for " + settings.getName());
+                for (final String path : dirty) {
+                    if (!output.isRetained(new File(settings.getOutputDirectory(), relativePaths.get(path)))) {
+                        deleteOutput(settings, relativePaths.get(path));
+                    }
+                }
+            }
+            final List<CtType<?>> allTypes = new ArrayList<>();
+            types.values().forEach(allTypes::addAll);
+            final ValidationContext results;
+            try (final Metrics.Phase phase = Metrics.phase("validate")) {
+                phase.count("types", allTypes.size());
+                results = MissingOverwriteProcessor.validateAll(cache, allTypes, settings.getValidationThreads(), Integer.MAX_VALUE);
+            }
+            for (final String path : dirty) {
+                final List<CtType<?>> declared = types.getOrDefault(path, Collections.emptyList());
+                final FileState state = new FileState(hashes.get(path), relativePaths.get(path), declared, results);
+                state.commonHashes.putAll(commonHashes.get(path));
+                state.commonHashes.putAll(hashCommonFiles(cache, declared));
+                current.files.put(path, state);
+            }
+        }
+        if (settings.generateCode() && (reset || !dirty.isEmpty())) {
+            final OutputSync sync = Objects.requireNonNull(output, "No output for " + settings.getName());
+            if (reset) {
+                // Every file was processed again, so nothing else in the output is current.
+                sync.deleteStale();
+            }
+            sync.save();
+        }
+        if (!dirty.isEmpty() || !removed.isEmpty()) {
+            persisted.write(current);
+        }
+        session.state = current;
+        final Set<String> overwrites = new HashSet<>();
+        final ValidationContext ctx = new ValidationContext();
+        for (final FileState state : current.files.values()) {
+            overwrites.addAll(state.declaredTypes);
+            ctx.addAll(state.results);
+        }
+        OverwriteTargetProcessor.validateTargets(cache, overwrites);
+        MissingOverwriteProcessor.report(settings.getName(), ctx, settings.getMaxErrors());
+    }
+
+    /**
+     * Marks every file which references a changed type as dirty. The types declared
+     * by those files are then considered changed in turn, so that a change to one
+     * type reaches every file which depends on it through any number of others.
+     */
+    private static void propagateChanges(final State previous, final Set<String> paths, final Set<String> dirty,
+            final Set<String> changedTypes) {
+        final Map<String, List<String>> referencers = new HashMap<>();
+        for (final Map.Entry<String, FileState> entry : previous.files.entrySet()) {
+            if (paths.contains(entry.getKey())) {
+                for (final String type : entry.getValue().referencedTypes) {
+                    referencers.computeIfAbsent(type, t -> new ArrayList<>()).add(entry.getKey());
+                }
+            }
+        }
+        final Deque<String> queue = new ArrayDeque<>(changedTypes);
+        while (!queue.isEmpty()) {
+            for (final String path : referencers.getOrDefault(queue.pop(), Collections.emptyList())) {
+                if (dirty.add(path)) {
+                    for (final String type : previous.files.get(path).declaredTypes) {
+                        if (changedTypes.add(type)) {
+                            queue.add(type);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Determines whether the file or any directory containing it has changed. */
+    private static boolean isChanged(final Set<Path> changed, final Path file) {
+        for (Path p = file.toAbsolutePath().normalize(); p != null; p = p.getParent()) {
+            if (changed.contains(p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean anyChanged(final Set<Path> changed, final Set<String> files) {
+        for (final String file : files) {
+            if (isChanged(changed, new File(file).toPath())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String getSettings(final PlatformSettings settings, final LauncherContext.Cache cache) {
+        final String output = settings.generateCode() ? settings.getOutputDirectory().getAbsolutePath() : "";
+        return settings.generateCode() + ";" + output
+            + ";" + LauncherContext.getCommonSourceSet(cache) + ";" + settings.getParsingProfile();
+    }
+
+    private static Map<String, String> hashCommonFiles(final Set<File> commonSources, final String relative, @Nullable final FileState old) {
+        final Map<String, String> hashes = new TreeMap<>();
+        if (old != null) {
+            for (final String common : old.commonHashes.keySet()) {
+                hashes.put(common, hashIfPresent(new File(common)));
+            }
+        }
+        for (final File dir : commonSources) {
+            final File common = new File(dir, relative);
+            hashes.put(common.getAbsolutePath(), hashIfPresent(common));
+        }
+        return hashes;
+    }
+
+    private static Map<String, String> hashCommonFiles(final LauncherContext.Cache cache, final List<CtType<?>> declared) {
+        final Map<String, String> hashes = new TreeMap<>();
+        for (final CtType<?> type : declared) {
+            final TypeSignature overwritten = cache.getOverwrittenSignature(type);
+            if (overwritten != null && overwritten.getFile() != null) {
+                final File common = overwritten.getFile();
+                hashes.put(common.getAbsolutePath(), hashIfPresent(common));
+            }
+        }
+        return hashes;
+    }
+
+    private static String hashIfPresent(final File f) {
+        return f.exists() ? SignatureCache.hash(f.toPath()) : ABSENT;
+    }
+
+    /**
+     * Parses and processes the dirty files. Every file declaring a type which the
+     * dirty files depend on, directly or indirectly, is parsed along with them so
+     * that those references resolve as they would in a full build. These files are
+     * parsed without their method bodies and will not be processed or emitted.
+     * <p>
+     *   The dependencies of the dirty files are found lexically, since the previous
+     *   build may not know about the types they reference now. Those of every other
+     *   file are taken from the previous build.
+     * </p>
+     */
+    private static Map<String, List<CtType<?>>> processFiles(final PlatformSettings settings, final LauncherContext.Cache cache,
+            @Nullable final OutputSync output, final State previous, final Set<String> dirty) {
+        final Map<String, String> sources = new HashMap<>();
+        for (final String path : dirty) {
+            sources.put(path, SourceIndex.readFile(new File(path)));
+        }
+        final Map<String, String> declaringFiles = new HashMap<>();
+        for (final Map.Entry<String, FileState> entry : previous.files.entrySet()) {
+            if (!dirty.contains(entry.getKey())) {
+                for (final String type : entry.getValue().declaredTypes) {
+                    declaringFiles.put(type, entry.getKey());
+                }
+            }
+        }
+        for (final Map.Entry<String, String> entry : sources.entrySet()) {
+            for (final String type : SourceIndex.getDeclaredTypes(entry.getValue())) {
+                declaringFiles.put(type, entry.getKey());
+            }
+        }
+        final Map<String, List<String>> bySimpleName = new HashMap<>();
+        for (final Map.Entry<String, String> entry : declaringFiles.entrySet()) {
+            final String type = entry.getKey();
+            bySimpleName.computeIfAbsent(type.substring(type.lastIndexOf('.') + 1), n -> new ArrayList<>()).add(entry.getValue());
+        }
+        final Set<String> inputs = new TreeSet<>(dirty);
+        final Deque<String> queue = new ArrayDeque<>(dirty);
+        while (!queue.isEmpty()) {
+            final String path = queue.pop();
+            final List<String> dependencies = new ArrayList<>();
+            final String source = sources.get(path);
+            if (source != null) {
+                for (final String identifier : SourceIndex.getIdentifiers(source)) {
+                    dependencies.addAll(bySimpleName.getOrDefault(identifier, Collections.emptyList()));
+                }
+            } else {
+                final FileState old = previous.files.get(path);
+                for (final String type : old != null ? old.referencedTypes : Collections.<String>emptySet()) {
+                    final String declaring = declaringFiles.get(type);
+                    if (declaring != null) {
+                        dependencies.add(declaring);
+                    }
+                }
+            }
+            for (final String dependency : dependencies) {
+                if (new File(dependency).exists() && inputs.add(dependency)) {
+                    queue.add(dependency);
+                }
+            }
+        }
+        final Launcher launcher = new Launcher();
+        for (final String path : inputs) {
+            if (dirty.contains(path)) {
+                launcher.addInputResource(new FileSystemFile(new File(path)));
+            } else {
+                launcher.addInputResource(LauncherContext.stripBodies(new File(path)));
+            }
+        }
+        final CtModel model = LauncherContext.generate(settings, cache, launcher, output, t -> dirty.contains(getPath(t)));
+        final Map<String, List<CtType<?>>> types = new HashMap<>();
+        for (final CtType<?> type : CtUtils.getAllClasses(model)) {
+            final String path = getPath(type);
+            if (dirty.contains(path)) {
+                types.computeIfAbsent(path, p -> new ArrayList<>()).add(type);
+            }
+        }
+        return types;
+    }
+
+    private static String getPath(final CtType<?> type) {
+        return type.getPosition().getFile().getAbsolutePath();
+    }
+
+    private static boolean outputExists(final PlatformSettings settings, final String relativePath) {
+        return new File(settings.getOutputDirectory(), relativePath).exists();
+    }
+
+    private static void deleteOutput(final PlatformSettings settings, final String relativePath) {
+        final File output = new File(settings.getOutputDirectory(), relativePath);
+        if (output.exists() && !output.delete()) {
+            System.err.println("Error deleting " + output);
+        }
+    }
+
+    /**
+     * Holds the state of the previous build in memory, so that a long-running caller
+     * does not need to read it again for each build.
+     */
+    public static final class Session {
+        @Nullable State state;
+    }
+
+    private static class State implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final String settings;
+        final TreeMap<String, FileState> files = new TreeMap<>();
+
+        State(final String settings) {
+            this.settings = settings;
+        }
+    }
+
+    private static class FileState implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final String hash;
+        final String relativePath;
+        final TreeMap<String, String> commonHashes = new TreeMap<>();
+        final TreeSet<String> declaredTypes = new TreeSet<>();
+        final TreeSet<String> referencedTypes = new TreeSet<>();
+        final ValidationContext results;
+
+        FileState(final String hash, final String relativePath, final List<CtType<?>> declared, final ValidationContext results) {
+            this.hash = hash;
+            this.relativePath = relativePath;
+            for (final CtType<?> type : declared) {
+                this.declaredTypes.add(type.getQualifiedName());
+                for (final CtTypeReference<?> ref : type.getReferencedTypes()) {
+                    this.referencedTypes.add(getTopLevelName(ref.getQualifiedName()));
+                }
+            }
+            this.referencedTypes.removeAll(this.declaredTypes);
+            this.results = results.subset(this.declaredTypes);
+        }
+
+        private static String getTopLevelName(final String qualifiedName) {
+            final int index = qualifiedName.indexOf('$');
+            return index < 0 ? qualifiedName : qualifiedName.substring(0, index);
+        }
+    }
+}
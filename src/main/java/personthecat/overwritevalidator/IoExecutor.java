@@ -0,0 +1,81 @@
+package personthecat.overwritevalidator;
+
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs batches of file operations concurrently on a bounded number of threads.
+ * <p>
+ *   Virtual threads are used when the runtime supports them, i.e. on Java 21 and
+ *   later, and daemon platform threads are used otherwise. The plugin targets Java 8,
+ *   so virtual threads can only be created reflectively.
+ * </p>
+ */
+public final class IoExecutor {
+
+    /** Creates the threads for each batch, or null if virtual threads are unavailable. */
+    private static final ThreadFactory VIRTUAL_THREADS = getVirtualThreadFactory();
+
+    private IoExecutor() {}
+
+    /**
+     * Runs every task and waits for all of them to complete. Tasks are collected in
+     * the order they complete, so as soon as any task fails, the remaining tasks are
+     * cancelled and its error is rethrown.
+     *
+     * @param tasks The operations to run. Each must be independent of the others.
+     * @param threads The maximum number of operations to run at once.
+     */
+    public static void runAll(final List<? extends Runnable> tasks, final int threads) {
+        if (threads <= 1 || tasks.size() <= 1) {
+            tasks.forEach(Runnable::run);
+            return;
+        }
+        final ExecutorService executor = createExecutor(Math.min(threads, tasks.size()));
+        try {
+            final CompletionService<Object> results = new ExecutorCompletionService<>(executor);
+            for (final Runnable task : tasks) {
+                results.submit(Metrics.wrap(task), null);
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                results.take().get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing outputs", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Error writing outputs", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ExecutorService createExecutor(final int threads) {
+        if (VIRTUAL_THREADS != null) {
+            return Executors.newFixedThreadPool(threads, VIRTUAL_THREADS);
+        }
+        return Executors.newFixedThreadPool(threads, r -> {
+            final Thread thread = new Thread(r, "OverwriteValidator I/O");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static ThreadFactory getVirtualThreadFactory() {
+        try {
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (final ReflectiveOperationException | RuntimeException ignored) {
+            // Not supported by this runtime, or still a preview feature.
+            return null;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package personthecat.overwritevalidator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A minimal tokenizer for Java sources. It does not validate its input and only
+ * knows enough about the language to tell identifiers and symbols apart from the
+ * contents of comments, strings, and character literals.
+ */
+public final class JavaLexer {
+
+    private JavaLexer() {}
+
+    /**
+     * Splits the given source into tokens. Whitespace and comments are discarded.
+     *
+     * @param source The raw contents of a Java source file.
+     * @return Every token in the source, in order.
+     */
+    public static List<Token> tokenize(final CharSequence source) {
+        final List<Token> tokens = new ArrayList<>();
+        final int length = source.length();
+        int i = 0;
+        while (i < length) {
+            final char c = source.charAt(i);
+            final int start = i;
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '/' && i + 1 < length && source.charAt(i + 1) == '/') {
+                i = skipLine(source, i);
+            } else if (c == '/' && i + 1 < length && source.charAt(i + 1) == '*') {
+                i = skipBlockComment(source, i + 2);
+            } else if (c == '"' && startsWith(source, i, "\"\"\"")) {
+                i = skipTextBlock(source, i + 3);
+                tokens.add(new Token(TokenType.LITERAL, start, i));
+            } else if (c == '"' || c == '\'') {
+                i = skipQuoted(source, i + 1, c);
+                tokens.add(new Token(TokenType.LITERAL, start, i));
+            } else if (Character.isJavaIdentifierStart(c)) {
+                i = skipIdentifier(source, i + 1);
+                tokens.add(new Token(TokenType.IDENTIFIER, start, i));
+            } else if (Character.isDigit(c)) {
+                i = skipIdentifier(source, i + 1);
+                tokens.add(new Token(TokenType.LITERAL, start, i));
+            } else {
+                i++;
+                tokens.add(new Token(TokenType.SYMBOL, start, i));
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean startsWith(final CharSequence source, final int index, final String s) {
+        if (index + s.length() > source.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (source.charAt(index + i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipLine(final CharSequence source, int i) {
+        while (i < source.length() && source.charAt(i) != '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipBlockComment(final CharSequence source, int i) {
+        while (i < source.length() && !startsWith(source, i, "*/")) {
+            i++;
+        }
+        return Math.min(i + 2, source.length());
+    }
+
+    private static int skipTextBlock(final CharSequence source, int i) {
+        while (i < source.length() && !startsWith(source, i, "\"\"\"")) {
+            i += source.charAt(i) == '\\' ? 2 : 1;
+        }
+        return Math.min(i + 3, source.length());
+    }
+
+    private static int skipQuoted(final CharSequence source, int i, final char quote) {
+        while (i < source.length()) {
+            final char c = source.charAt(i);
+            if (c == quote) {
+                return i + 1;
+            } else if (c == '\n') {
+                return i;
+            }
+            i += c == '\\' ? 2 : 1;
+        }
+        return source.length();
+    }
+
+    private static int skipIdentifier(final CharSequence source, int i) {
+        while (i < source.length() && Character.isJavaIdentifierPart(source.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    public enum TokenType {
+        IDENTIFIER,
+        LITERAL,
+        SYMBOL
+    }
+
+    public static class Token {
+        final TokenType type;
+        final int start;
+        final int end;
+
+        Token(final TokenType type, final int start, final int end) {
+            this.type = type;
+            this.start = start;
+            this.end = end;
+        }
+
+        public TokenType getType() {
+            return this.type;
+        }
+
+        public int getStart() {
+            return this.start;
+        }
+
+        public int getEnd() {
+            return this.end;
+        }
+
+        public boolean is(final CharSequence source, final String text) {
+            return this.end - this.start == text.length() && startsWith(source, this.start, text);
+        }
+
+        public String getText(final CharSequence source) {
+            return source.subSequence(this.start, this.end).toString();
+        }
+    }
+}
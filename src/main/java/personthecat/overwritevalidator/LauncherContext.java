@@ -2,73 +2,196 @@ package personthecat.overwritevalidator;
 
 import org.gradle.api.Project;
 import org.gradle.api.plugins.JavaPluginConvention;
-import personthecat.overwritevalidator.processors.InheritMissingMembersProcessor;
-import personthecat.overwritevalidator.processors.InheritProcessor;
 import personthecat.overwritevalidator.processors.ManualImportProcessor;
 import personthecat.overwritevalidator.processors.MissingOverwriteProcessor;
-import personthecat.overwritevalidator.processors.OverwriteClassProcessor;
-import personthecat.overwritevalidator.processors.OverwriteProcessor;
+import personthecat.overwritevalidator.processors.OverwritePipeline;
 import personthecat.overwritevalidator.processors.OverwriteTargetProcessor;
 import spoon.Launcher;
 import spoon.reflect.CtModel;
 import spoon.reflect.declaration.CtType;
+import spoon.support.compiler.FileSystemFile;
 import spoon.support.compiler.FileSystemFolder;
+import spoon.support.compiler.VirtualFile;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public final class LauncherContext {
 
-    /** Stores the AST of the common project. Avoids redundant parsing. */
-    private static final AtomicReference<Cache> DATA = new AtomicReference<>();
-
-    /** A message to display when the cache has not loaded in time. */
-    private static final String OUT_OF_ORDER = "Plugins ran out of order";
-
     private LauncherContext() {}
 
-    public static synchronized void initStatic(final Project project) {
-        if (DATA.get() == null) {
-            final OverwriteValidatorExtension config = OverwriteValidatorExtension.get(project);
-            DATA.set(new Cache(createCommonModel(config.getCommonProject())));
-        }
+    /**
+     * Gets the cached data for the common projects of the given platform, parsing any
+     * which have not been requested yet. Common projects may themselves overwrite
+     * another common project, in which case every layer in the chain is loaded once
+     * per build and shared by all of the platforms which depend on it. Layers are held
+     * by the {@link CommonModelService} and are reloaded once their sources are
+     * invalidated.
+     *
+     * @param project The platform project which the plugin has been applied to.
+     * @return An immutable view of the nearest common project and its parents.
+     */
+    @Nonnull
+    public static Cache getCache(final Project project) {
+        final OverwriteValidatorExtension config = OverwriteValidatorExtension.get(project);
+        return getCache(CommonModelService.get(project).getModels(), getCommonLayers(project), config.getParsingProfile(),
+            config.isPersistentCache());
     }
 
-    @Nullable
-    public static CtType<?> getOverwrittenClass(final CtType<?> ctClass) {
-        for (final CtType<?> t : LauncherContext.getCommonClasses()) {
-            if (t.getQualifiedName().equals(ctClass.getQualifiedName())) {
-                return t;
+    /**
+     * Variant of {@link #getCache(Project)} for common projects which are only known
+     * by their source directories, e.g. outside of Gradle. Signatures are not persisted.
+     *
+     * @param models Holds the layers which have already been loaded.
+     * @param chain The source directories of each common project, nearest first.
+     * @param profile Determines how the common sources are parsed.
+     * @return An immutable view of the nearest common project and its parents.
+     */
+    @Nonnull
+    public static Cache getCache(final CommonModels models, final List<? extends Collection<File>> chain,
+            final ParsingProfile profile) {
+        final List<CommonLayer> layers = new ArrayList<>();
+        for (final Collection<File> dirs : chain) {
+            final Set<File> sources = new TreeSet<>();
+            for (final File dir : validateOrEmpty(dirs)) {
+                sources.add(dir.getAbsoluteFile());
             }
+            layers.add(new CommonLayer(sources.toString(), sources, null));
         }
-        return null;
+        return getCache(models, layers, profile, false);
     }
 
+    /**
+     * Variant of {@link #getCache(Project)} for common projects which were resolved
+     * ahead of time, e.g. when the build was configured.
+     *
+     * @param models Holds the layers which have already been loaded.
+     * @param chain Each common project, nearest first.
+     * @param profile Determines how the common sources are parsed.
+     * @param persistent Whether to persist the signatures of each layer.
+     * @return An immutable view of the nearest common project and its parents.
+     */
     @Nonnull
-    public static CtType<?> getOverwrittenClassOrThrow(final CtType<?> type) {
-        final CtType<?> overwritten = getOverwrittenClass(type);
-        if (overwritten == null) {
-            throw new MissingCommonClassException(type);
+    public static Cache getCache(final CommonModels models, final List<CommonLayer> chain, final ParsingProfile profile,
+            final boolean persistent) {
+        if (chain.isEmpty()) {
+            throw new IllegalArgumentException("No common sources");
         }
-        return overwritten;
+        Cache cache = null;
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            final CommonLayer layer = chain.get(i);
+            final File signatures = persistent ? layer.signatures : null;
+            cache = getLayer(models, layer.key, layer.sources, signatures, cache, profile);
+        }
+        return cache;
+    }
+
+    private static Cache getLayer(final CommonModels models, final String key, final Collection<File> sources,
+            @Nullable final File signatures, @Nullable final Cache parent, final ParsingProfile profile) {
+        return models.getLayer(key, sources, parent, budget -> createCache(sources, signatures, parent, budget, profile));
     }
 
+    /**
+     * Resolves the sources and signature cache of every common project which the
+     * given platform overwrites.
+     *
+     * @param project The platform project which the plugin has been applied to.
+     * @return Each common project in the chain, nearest first.
+     */
     @Nonnull
-    public static List<CtType<?>> getOverwriteTargets() {
-        return Objects.requireNonNull(DATA.get().overwriteTargets, OUT_OF_ORDER);
+    public static List<CommonLayer> getCommonLayers(final Project project) {
+        final List<CommonLayer> layers = new ArrayList<>();
+        for (final Project common : getCommonProjects(project)) {
+            layers.add(new CommonLayer(common.getProjectDir().getAbsolutePath(), getMainSourceSet(common),
+                SignatureCache.getFile(common)));
+        }
+        return layers;
     }
 
+    /**
+     * Resolves every common project which the given platform overwrites. A common
+     * project which has also applied this plugin inherits from its own common
+     * project, e.g. <code>common -> common-modern -> forge</code>.
+     *
+     * @param project The platform project which the plugin has been applied to.
+     * @return Each common project in the chain, nearest first.
+     */
     @Nonnull
-    private static List<CtType<?>> getCommonClasses() {
-        return Objects.requireNonNull(DATA.get().classes, OUT_OF_ORDER);
+    public static List<Project> getCommonProjects(final Project project) {
+        final List<Project> chain = new ArrayList<>();
+        Project common = OverwriteValidatorExtension.get(project).getCommonProject();
+        while (common != null) {
+            if (chain.contains(common)) {
+                throw new CircularCommonProjectException(project, common);
+            }
+            chain.add(common);
+            common = getParentProject(common);
+        }
+        return chain;
+    }
+
+    /**
+     * Gets the source directories of every common project which the given platform
+     * overwrites.
+     */
+    public static Set<File> getCommonSourceSet(final Project project) {
+        final Set<File> sources = new LinkedHashSet<>();
+        for (final Project common : getCommonProjects(project)) {
+            sources.addAll(getMainSourceSet(common));
+        }
+        return sources;
+    }
+
+    /** Gets the source directories of every layer in the given cache, nearest first. */
+    static Set<File> getCommonSourceSet(final Cache cache) {
+        final Set<File> sources = new LinkedHashSet<>();
+        for (Cache layer = cache; layer != null; layer = layer.parent) {
+            sources.addAll(layer.sources);
+        }
+        return sources;
+    }
+
+    @Nullable
+    private static Project getParentProject(final Project common) {
+        final OverwriteValidatorExtension config = common.getExtensions().findByType(OverwriteValidatorExtension.class);
+        if (config == null || config.commonProject == null || config.commonProject.equals(common)) {
+            return null;
+        }
+        return config.commonProject;
+    }
+
+    private static Cache createCache(final Collection<File> sources, @Nullable final File signatureFile,
+            @Nullable final Cache parent, final ModelBudget budget, final ParsingProfile profile) {
+        if (signatureFile == null) {
+            return new Cache(sources, null, parent, budget, profile);
+        }
+        final SignatureCache persisted = new SignatureCache(signatureFile, sources);
+        final Map<String, String> hashes = persisted.hashSources();
+        List<TypeSignature> signatures = persisted.read(hashes);
+        if (signatures == null) {
+            signatures = createSignatures(sources, profile);
+            persisted.write(hashes, signatures);
+        }
+        return new Cache(sources, signatures, parent, budget, profile);
     }
 
     public static Set<File> getMainSourceSet(final Project project) {
@@ -81,54 +204,519 @@ public final class LauncherContext {
         }
     }
 
-    private static Set<File> validateOrEmpty(final Set<File> sources) {
+    private static Set<File> validateOrEmpty(final Collection<File> sources) {
         return sources.stream().filter(File::exists).collect(Collectors.toSet());
     }
 
-    public static void process(final Project project) {
+    /**
+     * Validates every source of a platform and, if code generation is enabled, writes
+     * the generated sources to its output directory.
+     *
+     * @param settings The platform being processed.
+     * @param cache The data of the common project being overwritten.
+     * @param output The output directory to which the sources will be written, if any.
+     */
+    public static void process(final PlatformSettings settings, final Cache cache, @Nullable final OutputSync output) {
         final Launcher launcher = new Launcher();
-        for (final File dir : getMainSourceSet(project)) {
+        for (final File dir : settings.getSources()) {
             launcher.addInputResource(new FileSystemFolder(dir));
         }
-        final OverwriteValidatorExtension config = OverwriteValidatorExtension.get(project);
+        final CtModel model = generate(settings, cache, launcher, output, t -> true);
+        if (settings.generateCode()) {
+            Objects.requireNonNull(output, "No output for " + settings.getName());
+            try (final Metrics.Phase ignored = Metrics.phase("cleanup")) {
+                output.deleteStale();
+                output.save();
+            }
+        }
+        try (final Metrics.Phase phase = Metrics.phase("validate")) {
+            final List<CtType<?>> types = CtUtils.getAllClasses(model);
+            phase.count("types", types.size());
+            OverwriteTargetProcessor.processTypes(cache, types);
+            MissingOverwriteProcessor.processTypes(settings, cache, types);
+        }
+    }
+
+    /**
+     * Builds the model for the given launcher and, if code generation is enabled,
+     * runs the code generating pipeline over it.
+     *
+     * @param settings The platform being processed.
+     * @param cache The data of the common project being overwritten.
+     * @param launcher A launcher containing the inputs to be parsed.
+     * @param output The output directory to which the sources will be written, if any.
+     * @param filter Determines which of the parsed types may be written to the output.
+     * @return The processed model.
+     */
+    static CtModel generate(final PlatformSettings settings, final Cache cache, final Launcher launcher,
+            @Nullable final OutputSync output, final Predicate<CtType<?>> filter) {
         final CtModel model;
-        if (config.generateCode()) {
-            final Set<CtType<?>> processed = new HashSet<>();
-            launcher.setSourceOutputDirectory(config.getOutputDirectory());
-            launcher.addProcessor(new InheritProcessor(processed));
-            launcher.addProcessor(new InheritMissingMembersProcessor(processed));
-            launcher.addProcessor(new OverwriteClassProcessor(processed));
-            launcher.addProcessor(new OverwriteProcessor(processed));
-            launcher.setOutputFilter(processed::contains);
-            launcher.run();
-
-            ManualImportProcessor.fixImports(project, launcher);
-            model = launcher.getModel();
-        } else {
+        settings.getParsingProfile().configure(launcher.getEnvironment(),
+            settings.generateCode() ? ParsingProfile.Phase.GENERATE : ParsingProfile.Phase.VALIDATE);
+        try (final Metrics.Phase phase = Metrics.phase("parse")) {
             model = launcher.buildModel();
+            countTypes(phase, model);
+        }
+        if (!settings.generateCode()) {
+            return model;
+        }
+        final Set<CtType<?>> processed = new HashSet<>();
+        launcher.setSourceOutputDirectory(settings.getOutputDirectory());
+        launcher.addProcessor(OverwritePipeline.createDefault(cache, processed));
+        try (final Metrics.Phase phase = Metrics.phase("generate")) {
+            launcher.process();
+            phase.count("types", processed.size());
         }
-        OverwriteTargetProcessor.processModel(model);
-        MissingOverwriteProcessor.processModel(project, model);
+        try (final Metrics.Phase ignored = Metrics.phase("write")) {
+            ManualImportProcessor.writeSources(settings, cache, launcher, Objects.requireNonNull(output), processed, filter);
+        }
+        return model;
+    }
+
+    private static void countTypes(final Metrics.Phase phase, final CtModel model) {
+        final List<CtType<?>> types = CtUtils.getAllClasses(model);
+        phase.count("types", types.size());
+        for (final CtType<?> type : types) {
+            phase.count("members", type.getTypeMembers().size());
+        }
+        phase.count("files", types.stream().map(t -> t.getPosition().getFile()).distinct().count());
+    }
+
+    /**
+     * Extracts the signatures of every type in the common project at once. This is
+     * only done when the signatures are going to be persisted. Otherwise, they are
+     * loaded from each package as it is needed.
+     */
+    @Nonnull
+    private static List<TypeSignature> createSignatures(final Collection<File> sources, final ParsingProfile profile) {
+        final Set<File> files = new TreeSet<>();
+        for (final File dir : sources) {
+            for (final Path p : SignatureCache.listJavaFiles(dir.toPath())) {
+                files.add(p.toFile().getAbsoluteFile());
+            }
+        }
+        final List<TypeSignature> signatures = new ArrayList<>();
+        for (final CtType<?> type : CtUtils.getAllClasses(parseSignatures(files, profile))) {
+            signatures.add(TypeSignature.of(type));
+        }
+        return signatures;
     }
 
+    /**
+     * Parses the given files without any of their method bodies. Method bodies are
+     * never needed for validation, so they are stripped before the sources are given
+     * to Spoon. This avoids building a model of every statement in the project.
+     */
     @Nonnull
-    private static CtModel createCommonModel(final Project project) {
+    private static CtModel parseSignatures(final Collection<File> files, final ParsingProfile profile) {
         final Launcher launcher = new Launcher();
-        for (final File dir : getMainSourceSet(project)) {
-            launcher.addInputResource(new FileSystemFolder(dir));
+        profile.configure(launcher.getEnvironment(), ParsingProfile.Phase.COMMON_SIGNATURES);
+        for (final File f : files) {
+            launcher.addInputResource(stripBodies(f));
+        }
+        return launcher.buildModel();
+    }
+
+    /**
+     * Parses a single common source file, including all of its method bodies. This
+     * is only done for the files declaring types which a platform inherits from. Its
+     * dependencies are parsed along with it, without their bodies, so that any types
+     * they declare can still be resolved.
+     */
+    @Nonnull
+    static CtModel createCommonModel(final File file, final Collection<File> dependencies, final ParsingProfile profile) {
+        final Launcher launcher = new Launcher();
+        profile.configure(launcher.getEnvironment(), ParsingProfile.Phase.COMMON_MODEL);
+        launcher.addInputResource(new FileSystemFile(file));
+        for (final File f : dependencies) {
+            if (!f.equals(file)) {
+                launcher.addInputResource(stripBodies(f));
+            }
         }
         return launcher.buildModel();
     }
 
+    static VirtualFile stripBodies(final File f) {
+        return new VirtualFile(BodyStripper.stripBodies(SourceIndex.readFile(f)), f.getPath());
+    }
+
+    /**
+     * Lazily creates a value which is shared between threads. Each instance is locked
+     * independently so that unrelated values may be loaded in parallel.
+     */
+    private static class Lazy<T> {
+        @Nullable volatile T value;
+
+        Lazy() {}
+
+        Lazy(final T value) {
+            this.value = value;
+        }
+
+        T get(final Supplier<T> factory) {
+            T value = this.value;
+            if (value == null) {
+                synchronized (this) {
+                    value = this.value;
+                    if (value == null) {
+                        value = factory.get();
+                        this.value = value;
+                    }
+                }
+            }
+            return value;
+        }
+    }
+
+    /**
+     * A single common project in the chain of a platform, as it was resolved when the
+     * build was configured.
+     */
+    public static final class CommonLayer {
+        final String key;
+        final Set<File> sources;
+        @Nullable final File signatures;
+
+        /**
+         * @param key Uniquely identifies the common project, e.g. its directory.
+         * @param sources The source directories of the common project.
+         * @param signatures The file in which its signatures may be persisted, if any.
+         */
+        public CommonLayer(final String key, final Collection<File> sources, @Nullable final File signatures) {
+            this.key = key;
+            this.sources = validateOrEmpty(sources);
+            this.signatures = signatures;
+        }
+    }
+
+    /**
+     * Contains the signatures of the types in a common project. Nothing is parsed until
+     * a platform asks for one of its types, at which point the directory declaring that
+     * type is parsed along with its direct dependencies. Types are located by the usual
+     * path convention when possible, falling back to a lexical index of the project.
+     * <p>
+     *   The full Spoon model is only needed for code generation. Each source file will
+     *   not be parsed with its method bodies until one of its types is inherited from.
+     *   These models are released once they exceed the {@link ModelBudget} and will
+     *   be parsed again if they are needed after that.
+     * </p>
+     * <p>
+     *   When this project overwrites another common project, each type is resolved in
+     *   this layer first and then in its parent. Types declared by this project replace
+     *   those of its parent, including any of their nested types. Each resolution is
+     *   remembered and the parsed layers are shared by every platform using them.
+     * </p>
+     * <p>
+     *   This object may be read by several platforms at once. Callers must not modify
+     *   any of the elements it returns, and members which get copied into a platform
+     *   must be cloned first. Spoon modifies a model lazily when its references are
+     *   resolved, so the references of these elements must never be resolved either.
+     *   They are only compared by name, through a {@link MemberSignature} and the
+     *   {@link TypeHierarchy} of the platform.
+     * </p>
+     */
     public static class Cache {
-        final CtModel model;
-        final List<CtType<?>> classes;
-        final List<CtType<?>> overwriteTargets;
+        @Nullable final Cache parent;
+        final ModelBudget budget;
+        final ParsingProfile profile;
+        final List<File> sources;
+        final Lazy<SourceIndex> index = new Lazy<>();
+        final Map<String, Lazy<Unit>> units = new ConcurrentHashMap<>();
+        final Map<String, Lazy<Model>> models = new ConcurrentHashMap<>();
+        final Map<String, Optional<Location>> locations = new ConcurrentHashMap<>();
+        final Lazy<List<TypeSignature>> overwriteTargets = new Lazy<>();
+
+        Cache(final Collection<File> sources, @Nullable final List<TypeSignature> signatures, @Nullable final Cache parent,
+                final ModelBudget budget, final ParsingProfile profile) {
+            this.parent = parent;
+            this.budget = budget;
+            this.profile = profile;
+            this.sources = new ArrayList<>();
+            for (final File dir : sources) {
+                this.sources.add(dir.getAbsoluteFile());
+            }
+            if (signatures != null) {
+                this.preload(signatures);
+            }
+        }
+
+        private void preload(final List<TypeSignature> signatures) {
+            final Map<String, List<TypeSignature>> dirs = new HashMap<>();
+            for (final TypeSignature signature : signatures) {
+                final File file = signature.getFile();
+                if (file != null) {
+                    final String dir = file.getAbsoluteFile().getParent();
+                    dirs.computeIfAbsent(dir, d -> new ArrayList<>()).add(signature);
+                }
+            }
+            for (final Map.Entry<String, List<TypeSignature>> entry : dirs.entrySet()) {
+                this.units.put(entry.getKey(), new Lazy<>(new Unit(entry.getValue())));
+            }
+            this.index.value = SourceIndex.of(signatures);
+        }
+
+        /**
+         * Looks up the common counterpart of a platform type by its qualified name.
+         * Nested types are resolved through a separate index so that top-level
+         * lookups never match a nested type by accident.
+         *
+         * @param type A type in the platform model.
+         * @return The equivalent type in the common model, or else <code>null</code>.
+         */
+        @Nullable
+        public CtType<?> getOverwrittenClass(final CtType<?> type) {
+            final String name = type.getQualifiedName();
+            final String topLevelName = getTopLevelName(name);
+            final Location location = this.locate(topLevelName);
+            if (location == null || this.getOverwrittenSignature(type) == null) {
+                return null;
+            }
+            final File file = location.unit.types.get(topLevelName).getFile();
+            if (file == null) {
+                return null;
+            }
+            final Model model = location.owner.getModel(file);
+            return (type.isTopLevel() ? model.classIndex : model.nestedIndex).get(name);
+        }
+
+        @Nonnull
+        public CtType<?> getOverwrittenClassOrThrow(final CtType<?> type) {
+            final CtType<?> overwritten = this.getOverwrittenClass(type);
+            if (overwritten == null) {
+                throw new MissingCommonClassException(type);
+            }
+            return overwritten;
+        }
+
+        @Nullable
+        public TypeSignature getOverwrittenSignature(final CtType<?> type) {
+            final String name = type.getQualifiedName();
+            final Location location = this.locate(getTopLevelName(name));
+            if (location == null) {
+                return null;
+            }
+            return (type.isTopLevel() ? location.unit.types : location.unit.nested).get(name);
+        }
+
+        /**
+         * Gets every type in the chain of common projects which all platforms are
+         * required to overwrite. Targets which have been overwritten by a nearer
+         * layer are excluded, since that layer is what the platform overwrites.
+         */
+        @Nonnull
+        public List<TypeSignature> getOverwriteTargets() {
+            return this.overwriteTargets.get(this::findOverwriteTargets);
+        }
+
+        private List<TypeSignature> findOverwriteTargets() {
+            final Map<String, TypeSignature> targets = new TreeMap<>();
+            for (Cache layer = this; layer != null; layer = layer.parent) {
+                for (final File file : layer.getIndex().getTargetCandidates()) {
+                    final Unit unit = layer.getUnit(file.getParentFile());
+                    for (final TypeSignature target : OverwriteTargetProcessor.getOverwriteTargets(new ArrayList<>(unit.types.values()))) {
+                        final Location location = this.locate(target.getQualifiedName());
+                        if (location != null && location.unit == unit) {
+                            targets.put(target.getQualifiedName(), target);
+                        }
+                    }
+                }
+            }
+            return Collections.unmodifiableList(new ArrayList<>(targets.values()));
+        }
+
+        @Nullable
+        private Location locate(final String topLevelName) {
+            Optional<Location> location = this.locations.get(topLevelName);
+            if (location == null) {
+                location = Optional.ofNullable(this.findLocation(topLevelName));
+                this.locations.put(topLevelName, location);
+            }
+            return location.orElse(null);
+        }
+
+        @Nullable
+        private Location findLocation(final String topLevelName) {
+            final File conventional = this.findConventionalFile(topLevelName);
+            if (conventional != null) {
+                final Unit unit = this.getUnit(conventional.getParentFile());
+                if (unit.types.containsKey(topLevelName)) {
+                    return new Location(this, unit);
+                }
+            }
+            final File indexed = this.getIndex().getFile(topLevelName);
+            if (indexed != null) {
+                final Unit unit = this.getUnit(indexed.getParentFile());
+                if (unit.types.containsKey(topLevelName)) {
+                    return new Location(this, unit);
+                }
+            }
+            return this.parent != null ? this.parent.locate(topLevelName) : null;
+        }
+
+        @Nullable
+        private File findConventionalFile(final String qualifiedName) {
+            final String path = qualifiedName.replace('.', File.separatorChar) + ".java";
+            for (final File dir : this.sources) {
+                final File f = new File(dir, path);
+                if (f.isFile()) {
+                    return f;
+                }
+            }
+            return null;
+        }
+
+        private SourceIndex getIndex() {
+            return this.index.get(() -> SourceIndex.scan(this.sources));
+        }
+
+        private Unit getUnit(final File dir) {
+            final Lazy<Unit> unit = this.units.computeIfAbsent(dir.getAbsolutePath(), k -> new Lazy<>());
+            return unit.get(() -> this.loadUnit(dir.getAbsoluteFile()));
+        }
+
+        private Unit loadUnit(final File dir) {
+            final List<File> files = SourceIndex.listJavaFiles(dir);
+            final Set<File> inputs = new TreeSet<>();
+            for (final File f : files) {
+                this.addDependencies(f, inputs);
+            }
+            final List<TypeSignature> signatures = new ArrayList<>();
+            for (final CtType<?> type : CtUtils.getAllClasses(parseSignatures(inputs, this.profile))) {
+                final File f = type.getPosition().getFile();
+                if (f != null && files.contains(f.getAbsoluteFile())) {
+                    signatures.add(TypeSignature.of(type));
+                }
+            }
+            return new Unit(signatures);
+        }
+
+        private Model getModel(final File file) {
+            final String key = file.getAbsolutePath();
+            final Lazy<Model> model = this.models.computeIfAbsent(key, k -> new Lazy<>());
+            this.budget.touch(this.models, key);
+            return model.get(() -> {
+                final Set<File> dependencies = new TreeSet<>();
+                this.addDependencies(file.getAbsoluteFile(), dependencies);
+                final Model loaded = new Model(createCommonModel(file, dependencies, this.profile));
+                // The dependencies always include the file itself.
+                long bytes = 0;
+                for (final File f : dependencies) {
+                    bytes += f.length();
+                }
+                this.budget.add(this.models, key, bytes);
+                return loaded;
+            });
+        }
+
+        /**
+         * Collects the files which a common source file directly depends on, i.e. the
+         * other files in its package and any of its imports declared in the chain of
+         * common projects. Dependencies are only located by the path convention.
+         */
+        private void addDependencies(final File file, final Set<File> dependencies) {
+            dependencies.addAll(SourceIndex.listJavaFiles(file.getParentFile()));
+            for (final String imported : SourceIndex.getImports(SourceIndex.readFile(file))) {
+                if (imported.endsWith(".*")) {
+                    final String name = imported.substring(0, imported.length() - 2);
+                    for (Cache layer = this; layer != null; layer = layer.parent) {
+                        for (final File dir : layer.sources) {
+                            dependencies.addAll(SourceIndex.listJavaFiles(new File(dir, name.replace('.', File.separatorChar))));
+                        }
+                    }
+                    this.addImportedType(name, dependencies);
+                } else {
+                    this.addImportedType(imported, dependencies);
+                }
+            }
+        }
+
+        private void addImportedType(final String imported, final Set<File> dependencies) {
+            String name = imported;
+            while (true) {
+                for (Cache layer = this; layer != null; layer = layer.parent) {
+                    final File f = layer.findConventionalFile(name);
+                    if (f != null) {
+                        dependencies.add(f.getAbsoluteFile());
+                        return;
+                    }
+                }
+                final int index = name.lastIndexOf('.');
+                if (index < 0) {
+                    return;
+                }
+                // The import may refer to a nested type or a static member.
+                name = name.substring(0, index);
+            }
+        }
+
+        private static String getTopLevelName(final String qualifiedName) {
+            final int index = qualifiedName.indexOf('$');
+            return index < 0 ? qualifiedName : qualifiedName.substring(0, index);
+        }
+    }
+
+    /** The signatures of every type declared in a single package directory. */
+    private static class Unit {
+        final Map<String, TypeSignature> types;
+        final Map<String, TypeSignature> nested;
+
+        Unit(final List<TypeSignature> signatures) {
+            final Map<String, TypeSignature> types = new HashMap<>();
+            final Map<String, TypeSignature> nested = new HashMap<>();
+            for (final TypeSignature signature : signatures) {
+                types.put(signature.getQualifiedName(), signature);
+                indexNested(nested, signature);
+            }
+            this.types = Collections.unmodifiableMap(types);
+            this.nested = Collections.unmodifiableMap(nested);
+        }
+
+        private static void indexNested(final Map<String, TypeSignature> index, final TypeSignature signature) {
+            for (final TypeSignature nested : signature.getNestedTypes()) {
+                index.put(nested.getQualifiedName(), nested);
+                indexNested(index, nested);
+            }
+        }
+    }
+
+    /** The layer and package in which a top-level common type was found. */
+    private static class Location {
+        final Cache owner;
+        final Unit unit;
+
+        Location(final Cache owner, final Unit unit) {
+            this.owner = owner;
+            this.unit = unit;
+        }
+    }
+
+    /** A fully parsed common source file, indexed by qualified name. */
+    private static class Model {
+        final Map<String, CtType<?>> classIndex;
+        final Map<String, CtType<?>> nestedIndex;
+
+        Model(final CtModel model) {
+            final Map<String, CtType<?>> classIndex = new HashMap<>();
+            final Map<String, CtType<?>> nestedIndex = new HashMap<>();
+            for (final CtType<?> type : CtUtils.getAllClasses(model)) {
+                classIndex.put(type.getQualifiedName(), type);
+                indexNested(nestedIndex, type);
+            }
+            this.classIndex = Collections.unmodifiableMap(classIndex);
+            this.nestedIndex = Collections.unmodifiableMap(nestedIndex);
+        }
+
+        private static void indexNested(final Map<String, CtType<?>> index, final CtType<?> type) {
+            for (final CtType<?> nested : type.getNestedTypes()) {
+                index.put(nested.getQualifiedName(), nested);
+                indexNested(index, nested);
+            }
+        }
+    }
 
-        Cache(final CtModel model) {
-            this.model = model;
-            this.classes = CtUtils.getAllClasses(model);
-            this.overwriteTargets = OverwriteTargetProcessor.getOverwriteTargets(this.classes);
+    private static class CircularCommonProjectException extends IllegalStateException {
+        CircularCommonProjectException(final Project project, final Project common) {
+            super("Common project " + common.getPath() + " of " + project.getPath() + " inherits from itself");
         }
     }
 
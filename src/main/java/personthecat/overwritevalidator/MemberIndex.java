@@ -0,0 +1,284 @@
+package personthecat.overwritevalidator;
+
+import spoon.reflect.declaration.CtConstructor;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtField;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtParameter;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.CtTypeMember;
+import spoon.reflect.reference.CtTypeReference;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes the members of a single type by their signatures so that overrides can be
+ * found without comparing every pair of members.
+ * <p>
+ *   Methods and constructors are keyed by their name and erased parameter types,
+ *   which answers most lookups with a single hash lookup. Since erasure drops any
+ *   type arguments, these are still compared for a match. Only when there is no
+ *   exact match are the members with the same name and arity compared through the
+ *   {@link TypeHierarchy} of the model.
+ * </p>
+ * <p>
+ *   The names of every member are read when the index is created. Lookups against
+ *   a {@link MemberSignature} never touch the Spoon model after that, so once its
+ *   types have been {@link #resolve resolved} and the hierarchy frozen, the index
+ *   may be used on several threads at once.
+ * </p>
+ */
+public class MemberIndex {
+
+    /** The key used in place of a name for constructors. */
+    private static final String CONSTRUCTOR = "<init>";
+
+    private final Map<String, Member> executables = new HashMap<>();
+    private final Map<String, List<Member>> arities = new HashMap<>();
+    private final Map<String, Member> fields = new HashMap<>();
+    private final TypeHierarchy hierarchy;
+
+    public MemberIndex(final CtType<?> type) {
+        this(type, new TypeHierarchy(type.getFactory()));
+    }
+
+    /**
+     * @param type The type whose members are being indexed.
+     * @param hierarchy The supertypes of the types in the same model, which may be
+     *                  shared between indices.
+     */
+    public MemberIndex(final CtType<?> type, final TypeHierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+        for (final CtMethod<?> method : type.getMethods()) {
+            this.add(method.getSimpleName(), new Member(method));
+        }
+        for (final CtConstructor<?> constructor : CtUtils.getConstructors(type)) {
+            this.add(CONSTRUCTOR, new Member(constructor));
+        }
+        for (final CtField<?> field : type.getFields()) {
+            this.fields.putIfAbsent(field.getSimpleName(), new Member(field));
+        }
+    }
+
+    private void add(final String name, final Member member) {
+        this.executables.putIfAbsent(getKey(name, member.getParameterNames()), member);
+        this.arities.computeIfAbsent(name + '/' + member.parameters.size(), k -> new ArrayList<>()).add(member);
+    }
+
+    /**
+     * Resolves every type which may be compared when looking up the members of a
+     * common type, i.e. those of every candidate which does not match its common
+     * member by name alone. This must be done before the hierarchy is frozen.
+     */
+    public void resolve(final TypeSignature overwritten) {
+        for (final MemberSignature parent : overwritten.getMembers()) {
+            if (parent.getKind() == MemberSignature.Kind.FIELD) {
+                final Member child = this.fields.get(parent.getSimpleName());
+                if (child != null) {
+                    this.resolve(child.type, parent.getType());
+                }
+                continue;
+            }
+            final String name = parent.getKind() == MemberSignature.Kind.METHOD ? parent.getSimpleName() : CONSTRUCTOR;
+            final List<String> params = parent.getParameters();
+            for (final Member child : this.getCandidates(name, params.size())) {
+                for (int i = 0; i < params.size(); i++) {
+                    this.resolve(child.parameters.get(i), params.get(i));
+                }
+                this.resolve(child.type, parent.getType());
+            }
+        }
+        for (final TypeSignature nested : overwritten.getNestedTypes()) {
+            this.resolve(nested);
+        }
+    }
+
+    private void resolve(final TypeName child, final String parent) {
+        if (!child.name.equals(parent)) {
+            this.hierarchy.resolve(child.resolved);
+            this.hierarchy.resolve(parent);
+        }
+    }
+
+    /**
+     * Determines whether this type declares a member which can take the place of a
+     * member in the common type.
+     */
+    public boolean overrides(final MemberSignature parent) {
+        switch (parent.getKind()) {
+            case METHOD:
+                return this.findOverride(parent.getSimpleName(), parent) != null;
+            case FIELD:
+                return this.overridesField(parent);
+            default:
+                return this.findOverride(CONSTRUCTOR, parent) != null;
+        }
+    }
+
+    public boolean overridesField(final MemberSignature parent) {
+        final Member child = this.fields.get(parent.getSimpleName());
+        return child != null && this.isAssignableTo(child.type, parent.getType())
+            && CtUtils.hasCompatibleArguments(child.type.generic, parent.getGenericType());
+    }
+
+    /**
+     * Locates the member of this type which corresponds to the given member of the
+     * common type, i.e. one which the common member could be substituted for.
+     */
+    @Nullable
+    public CtTypeMember getOverride(final MemberSignature parent) {
+        switch (parent.getKind()) {
+            case METHOD:
+                return getMember(this.findOverridden(parent.getSimpleName(), parent));
+            case FIELD:
+                return getMember(this.fields.get(parent.getSimpleName()));
+            default:
+                return getMember(this.findOverridden(CONSTRUCTOR, parent));
+        }
+    }
+
+    @Nullable
+    private Member findOverride(final String name, final MemberSignature parent) {
+        final List<String> params = parent.getParameters();
+        final Member exact = this.executables.get(getKey(name, params));
+        if (exact != null && this.canOverride(exact, parent)) {
+            return exact;
+        }
+        for (final Member child : this.getCandidates(name, params.size())) {
+            if (child != exact && this.canOverride(child, parent)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private Member findOverridden(final String name, final MemberSignature parent) {
+        final List<String> params = parent.getParameters();
+        final Member exact = this.executables.get(getKey(name, params));
+        if (exact != null && this.canBeOverriddenBy(exact, parent)) {
+            return exact;
+        }
+        for (final Member child : this.getCandidates(name, params.size())) {
+            if (child != exact && this.canBeOverriddenBy(child, parent)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    private List<Member> getCandidates(final String name, final int arity) {
+        return this.arities.getOrDefault(name + '/' + arity, Collections.emptyList());
+    }
+
+    private boolean canOverride(final Member child, final MemberSignature parent) {
+        return canOverride(this.hierarchy, child, parent);
+    }
+
+    /**
+     * Determines whether a method or constructor in the platform model can take the
+     * place of a member in the common type. Only the names of the common member are
+     * compared, so its model is never resolved.
+     *
+     * @param hierarchy The supertypes of the types in the platform model.
+     * @param child A method or constructor in the platform model.
+     * @param parent The signature of a member in the common type.
+     */
+    public static boolean canOverride(final TypeHierarchy hierarchy, final CtExecutable<?> child, final MemberSignature parent) {
+        final Member member = new Member(child);
+        return member.parameters.size() == parent.getParameters().size() && canOverride(hierarchy, member, parent);
+    }
+
+    private static boolean canOverride(final TypeHierarchy hierarchy, final Member child, final MemberSignature parent) {
+        final List<String> parentParams = parent.getParameters();
+        final List<String> genericParams = parent.getGenericParameters();
+        for (int i = 0; i < child.parameters.size(); i++) {
+            final TypeName param = child.parameters.get(i);
+            if (!isAssignableTo(hierarchy, param, parentParams.get(i)) || !CtUtils.hasCompatibleArguments(param.generic, genericParams.get(i))) {
+                return false;
+            }
+        }
+        return isAssignableTo(hierarchy, child.type, parent.getType())
+            && CtUtils.hasCompatibleArguments(child.type.generic, parent.getGenericType());
+    }
+
+    private boolean canBeOverriddenBy(final Member child, final MemberSignature parent) {
+        final List<String> parentParams = parent.getParameters();
+        final List<String> genericParams = parent.getGenericParameters();
+        for (int i = 0; i < child.parameters.size(); i++) {
+            final TypeName param = child.parameters.get(i);
+            if (!this.isAssignableTo(parentParams.get(i), param) || !CtUtils.hasCompatibleArguments(param.generic, genericParams.get(i))) {
+                return false;
+            }
+        }
+        return this.isAssignableTo(parent.getType(), child.type)
+            && CtUtils.hasCompatibleArguments(child.type.generic, parent.getGenericType());
+    }
+
+    private boolean isAssignableTo(final TypeName child, final String parent) {
+        return isAssignableTo(this.hierarchy, child, parent);
+    }
+
+    private static boolean isAssignableTo(final TypeHierarchy hierarchy, final TypeName child, final String parent) {
+        return child.name.equals(parent) || hierarchy.isAssignableTo(child.resolved, parent);
+    }
+
+    private boolean isAssignableTo(final String child, final TypeName parent) {
+        return parent.name.equals(child) || this.hierarchy.isAssignableTo(child, parent.resolved);
+    }
+
+    @Nullable
+    private static CtTypeMember getMember(@Nullable final Member member) {
+        return member != null ? member.member : null;
+    }
+
+    private static String getKey(final String name, final List<String> params) {
+        return name + '(' + String.join(",", params) + ')';
+    }
+
+    /** The names of every type in the signature of an indexed member. */
+    private static class Member {
+        final CtTypeMember member;
+        final TypeName type;
+        final List<TypeName> parameters = new ArrayList<>();
+
+        Member(final CtField<?> field) {
+            this.member = field;
+            this.type = new TypeName(field.getType());
+        }
+
+        Member(final CtExecutable<?> executable) {
+            this.member = (CtTypeMember) executable;
+            this.type = new TypeName(executable.getType());
+            for (final CtParameter<?> param : executable.getParameters()) {
+                this.parameters.add(new TypeName(param.getType()));
+            }
+        }
+
+        List<String> getParameterNames() {
+            final List<String> names = new ArrayList<>();
+            for (final TypeName param : this.parameters) {
+                names.add(param.name);
+            }
+            return names;
+        }
+    }
+
+    /** The qualified, resolved, and generic names of a single type. */
+    private static class TypeName {
+        final String name;
+        final String resolved;
+        final String generic;
+
+        TypeName(final CtTypeReference<?> type) {
+            this.name = type.getQualifiedName();
+            this.resolved = TypeHierarchy.getResolvedName(type);
+            this.generic = CtUtils.getGenericName(type);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package personthecat.overwritevalidator;
+
+import spoon.reflect.declaration.CtAnnotation;
+import spoon.reflect.declaration.CtConstructor;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtField;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtParameter;
+import spoon.reflect.declaration.CtTypeMember;
+import spoon.reflect.declaration.CtTypedElement;
+import spoon.reflect.declaration.ModifierKind;
+import spoon.reflect.reference.CtTypeReference;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The subset of a common method, field, or constructor which is needed to validate
+ * its overwrites. Unlike the Spoon element it was created from, this object is
+ * immutable and may be persisted between builds.
+ */
+public class MemberSignature implements Serializable {
+
+    private static final long serialVersionUID = 2L;
+
+    private final Kind kind;
+    private final String name;
+    private final String type;
+    private final String genericType;
+    private final String typeDisplay;
+    private final List<String> parameters;
+    private final List<String> genericParameters;
+    private final List<String> parameterDisplays;
+    @Nullable private final ModifierKind visibility;
+    private final boolean isStatic;
+    private final boolean isConstant;
+    private final List<String> annotations;
+
+    private MemberSignature(final Kind kind, final CtTypeMember member) {
+        final CtTypeReference<?> type = ((CtTypedElement<?>) member).getType();
+        this.kind = kind;
+        this.name = member.getSimpleName();
+        this.type = type.getQualifiedName();
+        this.genericType = CtUtils.getGenericName(type);
+        this.typeDisplay = type.toStringDebug();
+        this.parameters = new ArrayList<>();
+        this.genericParameters = new ArrayList<>();
+        this.parameterDisplays = new ArrayList<>();
+        if (member instanceof CtExecutable<?>) {
+            for (final CtParameter<?> param : ((CtExecutable<?>) member).getParameters()) {
+                this.parameters.add(param.getType().getQualifiedName());
+                this.genericParameters.add(CtUtils.getGenericName(param.getType()));
+                this.parameterDisplays.add(param.getType().toStringDebug());
+            }
+        }
+        this.visibility = member.getVisibility();
+        this.isStatic = member.isStatic();
+        this.isConstant = member instanceof CtField<?> && CtUtils.isConstant((CtField<?>) member);
+        this.annotations = new ArrayList<>();
+        for (final CtAnnotation<?> a : member.getAnnotations()) {
+            this.annotations.add(a.getAnnotationType().getQualifiedName());
+        }
+    }
+
+    @Nullable
+    public static MemberSignature of(final CtTypeMember member) {
+        if (member instanceof CtField<?>) {
+            return new MemberSignature(Kind.FIELD, member);
+        } else if (member instanceof CtConstructor<?>) {
+            return new MemberSignature(Kind.CONSTRUCTOR, member);
+        } else if (member instanceof CtMethod<?>) {
+            return new MemberSignature(Kind.METHOD, member);
+        }
+        return null;
+    }
+
+    public Kind getKind() {
+        return this.kind;
+    }
+
+    public String getSimpleName() {
+        return this.name;
+    }
+
+    public String getType() {
+        return this.type;
+    }
+
+    /** The type of this member with all of its type arguments. */
+    public String getGenericType() {
+        return this.genericType;
+    }
+
+    public String getTypeDisplay() {
+        return this.typeDisplay;
+    }
+
+    public List<String> getParameters() {
+        return Collections.unmodifiableList(this.parameters);
+    }
+
+    /** The parameter types of this member with all of their type arguments. */
+    public List<String> getGenericParameters() {
+        return Collections.unmodifiableList(this.genericParameters);
+    }
+
+    public List<String> getParameterDisplays() {
+        return Collections.unmodifiableList(this.parameterDisplays);
+    }
+
+    @Nullable
+    public ModifierKind getVisibility() {
+        return this.visibility;
+    }
+
+    public boolean isPrivate() {
+        return this.visibility == ModifierKind.PRIVATE;
+    }
+
+    public boolean isStatic() {
+        return this.isStatic;
+    }
+
+    public boolean isConstant() {
+        return this.isConstant;
+    }
+
+    public List<String> getAnnotations() {
+        return Collections.unmodifiableList(this.annotations);
+    }
+
+    public enum Kind {
+        METHOD,
+        FIELD,
+        CONSTRUCTOR
+    }
+}
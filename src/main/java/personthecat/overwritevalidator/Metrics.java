@@ -0,0 +1,230 @@
+package personthecat.overwritevalidator;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the wall time, CPU time, and allocations of each phase of a task run,
+ * along with counts of the work done in each phase.
+ * <p>
+ *   Phases are started on the thread running the task. Work which is handed off to
+ *   other threads is attributed to the phase it was submitted from when the task is
+ *   {@link #wrap wrapped}. The figures of each phase include those of the phases
+ *   nested inside of it. When no run has {@link #begin begun} on the current thread,
+ *   phases are still tracked, but are not reported anywhere.
+ * </p>
+ */
+public final class Metrics {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final ThreadLocal<Metrics> ACTIVE = new ThreadLocal<>();
+    private static final ThreadLocal<Phase> CURRENT = new ThreadLocal<>();
+
+    private final List<Phase> phases = Collections.synchronizedList(new ArrayList<>());
+
+    private Metrics() {}
+
+    /** Starts collecting the phases of a run on the current thread. */
+    public static Metrics begin() {
+        final Metrics metrics = new Metrics();
+        ACTIVE.set(metrics);
+        return metrics;
+    }
+
+    /** Stops collecting phases on the current thread. */
+    public void end() {
+        if (ACTIVE.get() == this) {
+            ACTIVE.remove();
+        }
+    }
+
+    /**
+     * Starts a new phase on the current thread, which lasts until it is closed.
+     *
+     * @param name The name of the phase as it will appear in the report.
+     * @return The phase, to be closed by a try-with-resources statement.
+     */
+    public static Phase phase(final String name) {
+        final Phase phase = new Phase(name, CURRENT.get());
+        final Metrics metrics = ACTIVE.get();
+        if (metrics != null) {
+            metrics.phases.add(phase);
+        }
+        CURRENT.set(phase);
+        return phase;
+    }
+
+    /** Adds to a counter of the phase running on the current thread, if any. */
+    public static void count(final String counter, final long amount) {
+        final Phase phase = CURRENT.get();
+        if (phase != null) {
+            phase.count(counter, amount);
+        }
+    }
+
+    /** Attributes the work done by a task on any thread to the current phase. */
+    public static Runnable wrap(final Runnable task) {
+        final Phase phase = CURRENT.get();
+        if (phase == null) {
+            return task;
+        }
+        return () -> {
+            final Sample start = Sample.now();
+            CURRENT.set(phase);
+            try {
+                task.run();
+            } finally {
+                CURRENT.remove();
+                phase.addWork(start);
+            }
+        };
+    }
+
+    /** Attributes the work done by a task on any thread to the current phase. */
+    public static <T> Callable<T> wrap(final Callable<T> task) {
+        final Phase phase = CURRENT.get();
+        if (phase == null) {
+            return task;
+        }
+        return () -> {
+            final Sample start = Sample.now();
+            CURRENT.set(phase);
+            try {
+                return task.call();
+            } finally {
+                CURRENT.remove();
+                phase.addWork(start);
+            }
+        };
+    }
+
+    /**
+     * Writes every phase recorded so far as a JSON array. Errors are reported, but
+     * never fail the build.
+     */
+    public void write(final File file) {
+        final StringBuilder sb = new StringBuilder("[\n");
+        final List<Phase> phases = this.getPhases();
+        for (int i = 0; i < phases.size(); i++) {
+            final Phase phase = phases.get(i);
+            sb.append("  {\"phase\": \"").append(phase.getPath()).append('"');
+            sb.append(", \"wallMillis\": ").append(TimeUnit.NANOSECONDS.toMillis(phase.wall));
+            sb.append(", \"cpuMillis\": ").append(TimeUnit.NANOSECONDS.toMillis(phase.cpu.get()));
+            sb.append(", \"allocatedBytes\": ").append(phase.allocated.get());
+            for (final Map.Entry<String, AtomicLong> counter : phase.counters.entrySet()) {
+                sb.append(", \"").append(counter.getKey()).append("\": ").append(counter.getValue().get());
+            }
+            sb.append(i < phases.size() - 1 ? "},\n" : "}\n");
+        }
+        sb.append("]\n");
+        final File parent = file.getParentFile();
+        try {
+            if (!(parent.exists() || parent.mkdirs())) {
+                System.err.println("Error creating " + parent);
+                return;
+            }
+            Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (final IOException e) {
+            System.err.println("Error writing metrics " + file + ": " + e.getMessage());
+        }
+    }
+
+    /** Formats the wall time of each top-level phase on a single line. */
+    public String getSummary() {
+        final StringBuilder sb = new StringBuilder();
+        for (final Phase phase : this.getPhases()) {
+            if (phase.parent == null) {
+                sb.append(sb.length() == 0 ? "" : ", ").append(phase.name).append(' ')
+                    .append(TimeUnit.NANOSECONDS.toMillis(phase.wall)).append("ms");
+            }
+        }
+        return sb.toString();
+    }
+
+    private List<Phase> getPhases() {
+        synchronized (this.phases) {
+            return new ArrayList<>(this.phases);
+        }
+    }
+
+    public static class Phase implements AutoCloseable {
+        final String name;
+        @Nullable final Phase parent;
+        final Sample start = Sample.now();
+        final AtomicLong cpu = new AtomicLong();
+        final AtomicLong allocated = new AtomicLong();
+        final Map<String, AtomicLong> counters = new ConcurrentSkipListMap<>();
+        volatile long wall;
+
+        Phase(final String name, @Nullable final Phase parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        public void count(final String counter, final long amount) {
+            this.counters.computeIfAbsent(counter, c -> new AtomicLong()).addAndGet(amount);
+        }
+
+        void addWork(final Sample from) {
+            final Sample to = Sample.now();
+            if (from.cpu >= 0 && to.cpu >= 0) {
+                this.cpu.addAndGet(to.cpu - from.cpu);
+            }
+            if (from.allocated >= 0 && to.allocated >= 0) {
+                this.allocated.addAndGet(to.allocated - from.allocated);
+            }
+        }
+
+        String getPath() {
+            return this.parent != null ? this.parent.getPath() + "/" + this.name : this.name;
+        }
+
+        @Override
+        public void close() {
+            this.wall = System.nanoTime() - this.start.wall;
+            this.addWork(this.start);
+            CURRENT.set(this.parent);
+        }
+    }
+
+    /** The counters of the current thread at a single point in time. */
+    private static class Sample {
+        final long wall;
+        final long cpu;
+        final long allocated;
+
+        Sample(final long wall, final long cpu, final long allocated) {
+            this.wall = wall;
+            this.cpu = cpu;
+            this.allocated = allocated;
+        }
+
+        static Sample now() {
+            final long cpu = THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+            return new Sample(System.nanoTime(), cpu, getAllocatedBytes());
+        }
+
+        private static long getAllocatedBytes() {
+            if (THREADS instanceof com.sun.management.ThreadMXBean) {
+                final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+                if (threads.isThreadAllocatedMemorySupported()) {
+                    return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+                }
+            }
+            return -1;
+        }
+    }
+}
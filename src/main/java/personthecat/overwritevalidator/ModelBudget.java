@@ -0,0 +1,87 @@
+package personthecat.overwritevalidator;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Limits the amount of common source which is held in memory as fully parsed models.
+ * <p>
+ *   Each model is weighed by the size of the source files it was parsed from, which
+ *   is proportional to the size of its AST. Once the total exceeds the budget, the
+ *   least recently used models are released. A released model is simply parsed
+ *   again the next time it is needed.
+ * </p>
+ */
+final class ModelBudget {
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Long> entries = new LinkedHashMap<>(16, 0.75F, true);
+    private long total;
+
+    ModelBudget(final long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /** Marks a model as having been used. */
+    synchronized void touch(final Map<String, ?> owner, final String key) {
+        this.entries.get(new Key(owner, key));
+    }
+
+    /**
+     * Records a model which was just loaded and releases older models from their
+     * owners until the budget is met. The new model is never released.
+     */
+    synchronized void add(final Map<String, ?> owner, final String key, final long bytes) {
+        final Long previous = this.entries.put(new Key(owner, key), bytes);
+        this.total += bytes - (previous != null ? previous : 0);
+        final Iterator<Map.Entry<Key, Long>> iterator = this.entries.entrySet().iterator();
+        while (this.total > this.maxBytes && this.entries.size() > 1) {
+            final Map.Entry<Key, Long> eldest = iterator.next();
+            eldest.getKey().owner.remove(eldest.getKey().key);
+            this.total -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    /** Forgets every model held by the given owner, e.g. when it is discarded. */
+    synchronized void removeAll(final Map<String, ?> owner) {
+        final Iterator<Map.Entry<Key, Long>> iterator = this.entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<Key, Long> entry = iterator.next();
+            if (entry.getKey().owner == owner) {
+                this.total -= entry.getValue();
+                iterator.remove();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        this.entries.clear();
+        this.total = 0;
+    }
+
+    /** Identifies a model by the map holding it, compared by identity, and its key. */
+    private static class Key {
+        final Map<String, ?> owner;
+        final String key;
+
+        Key(final Map<String, ?> owner, final String key) {
+            this.owner = owner;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            return this.owner == ((Key) o).owner && this.key.equals(((Key) o).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(this.owner) + this.key.hashCode();
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package personthecat.overwritevalidator;
+
+import org.gradle.api.Project;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Brings the contents of an output directory up to date without rewriting the files
+ * which have not changed.
+ * <p>
+ *   Every file written or copied through a sync is remembered so that any other file
+ *   in the directory can be deleted as stale once the output is complete. Sources
+ *   which are passed through unchanged may optionally be hard-linked instead of being
+ *   copied. Because a link shares its contents with the original source, an existing
+ *   output is always deleted before it is replaced and is never written through.
+ * </p>
+ * <p>
+ *   The content hash of each output is recorded in a manifest. As long as a file
+ *   has the same size and timestamp as when it was recorded, it is compared by hash
+ *   alone and does not need to be read again. Sources which are copied to the output
+ *   are recorded in the same way, so that an unchanged source with an unchanged copy
+ *   is neither read nor hashed. Unchanged outputs keep their original timestamps,
+ *   which allows the Java compiler to remain incremental.
+ * </p>
+ */
+public final class OutputSync {
+
+    /** The version of the {@link Manifest} format. */
+    private static final int FORMAT_VERSION = 3;
+
+    /** The location of the manifest, relative to the platform project's build dir. */
+    private static final String MANIFEST_PATH = "overwriteValidator/outputs.bin";
+
+    private final Path root;
+    private final boolean link;
+    @Nullable private final VersionedFile<Manifest> manifest;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<Path> retained = ConcurrentHashMap.newKeySet();
+
+    public OutputSync(final File root, final boolean link, @Nullable final File manifest) {
+        this.root = root.toPath().toAbsolutePath().normalize();
+        this.link = link;
+        this.manifest = manifest != null ? new VersionedFile<>(manifest, Manifest.class, FORMAT_VERSION, "output manifest") : null;
+        this.previous = readManifest(this.manifest, this.root);
+    }
+
+    public static OutputSync of(final Project project) {
+        final OverwriteValidatorExtension config = OverwriteValidatorExtension.get(project);
+        return new OutputSync(config.getOutputDirectory(), config.isLinkSources(), getManifestFile(project));
+    }
+
+    public static File getManifestFile(final Project project) {
+        return new File(project.getBuildDir(), MANIFEST_PATH);
+    }
+
+    /**
+     * Writes the given content to a file in the output, unless the file already
+     * contains exactly these bytes.
+     */
+    public void write(final File target, final byte[] content) {
+        final Path path = this.retain(target);
+        final String hash = SignatureCache.hash(content);
+        try {
+            if (this.isUpToDate(path, hash, null, () -> Arrays.equals(read(path), content))) {
+                Metrics.count("unchanged", 1);
+                return;
+            }
+            Files.createDirectories(path.getParent());
+            Files.deleteIfExists(path);
+            try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                final ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            this.record(path, hash, null);
+            Metrics.count("written", 1);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Writing output", e);
+        }
+    }
+
+    /**
+     * Places a copy or link of the source file in the output, unless an identical
+     * file is already there.
+     */
+    public void copy(final File source, final File target) {
+        final Path from = source.toPath().toAbsolutePath().normalize();
+        final Path path = this.retain(target);
+        final Entry entry = this.previous.get(this.getKey(path));
+        if (entry != null && entry.matches(path) && entry.matchesSource(from)) {
+            this.entries.put(this.getKey(path), entry);
+            Metrics.count("unchanged", 1);
+            return;
+        }
+        try {
+            final byte[] content = read(from);
+            final String hash = SignatureCache.hash(content);
+            if (this.isUpToDate(path, hash, from, () -> Files.isSameFile(from, path) || Arrays.equals(read(path), content))) {
+                Metrics.count("unchanged", 1);
+                return;
+            }
+            Files.createDirectories(path.getParent());
+            Files.deleteIfExists(path);
+            if (!this.link || !tryLink(from, path)) {
+                transfer(from, path);
+            }
+            this.record(path, hash, from);
+            Metrics.count("copied", 1);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Copying file", e);
+        }
+    }
+
+    public boolean isRetained(final File target) {
+        return this.retained.contains(target.toPath().toAbsolutePath().normalize());
+    }
+
+    /**
+     * Deletes every file in the output which was neither written nor copied through
+     * this sync, along with any directories left empty.
+     */
+    public void deleteStale() {
+        if (!Files.isDirectory(this.root)) {
+            return;
+        }
+        try (final Stream<Path> paths = Files.walk(this.root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                if (p.equals(this.root) || this.retained.contains(p) || (Files.isDirectory(p) && !isEmpty(p))) {
+                    return;
+                }
+                if (!p.toFile().delete()) {
+                    System.err.println("Error deleting " + p);
+                }
+            });
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Deleting stale outputs", e);
+        }
+    }
+
+    /**
+     * Persists the hashes of every output which still exists, including those which
+     * were recorded by a previous sync and were not touched by this one.
+     */
+    public void save() {
+        if (this.manifest == null) {
+            return;
+        }
+        final HashMap<String, Entry> merged = new HashMap<>();
+        for (final Map.Entry<String, Entry> entry : this.previous.entrySet()) {
+            if (entry.getValue().matches(this.root.resolve(entry.getKey()))) {
+                merged.put(entry.getKey(), entry.getValue());
+            }
+        }
+        merged.putAll(this.entries);
+        this.manifest.write(new Manifest(this.root.toString(), merged));
+    }
+
+    /**
+     * Determines whether the file at the given path already has the expected hash.
+     * The file is only compared directly when it is not described by the manifest.
+     */
+    private boolean isUpToDate(final Path path, final String hash, @Nullable final Path source, final Comparison compare)
+            throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        final Entry entry = this.previous.get(this.getKey(path));
+        final boolean known = entry != null && entry.matches(path);
+        if (known ? !entry.hash.equals(hash) : !compare.test()) {
+            return false;
+        }
+        this.record(path, hash, source);
+        return true;
+    }
+
+    private void record(final Path path, final String hash, @Nullable final Path source) throws IOException {
+        this.entries.put(this.getKey(path), new Entry(hash, path, source));
+    }
+
+    private Path retain(final File target) {
+        final Path path = target.toPath().toAbsolutePath().normalize();
+        this.retained.add(path);
+        return path;
+    }
+
+    private String getKey(final Path path) {
+        return this.root.relativize(path).toString();
+    }
+
+    private static Map<String, Entry> readManifest(@Nullable final VersionedFile<Manifest> file, final Path root) {
+        final Manifest manifest = file != null ? file.read() : null;
+        return manifest != null && manifest.root.equals(root.toString()) ? manifest.entries : new HashMap<>();
+    }
+
+    private static byte[] read(final Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            return buffer.hasRemaining() ? Arrays.copyOf(buffer.array(), buffer.position()) : buffer.array();
+        }
+    }
+
+    private static void transfer(final Path source, final Path target) throws IOException {
+        try (final FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                final FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            final long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+    }
+
+    private static boolean tryLink(final Path source, final Path link) {
+        try {
+            Files.createLink(link, source);
+            return true;
+        } catch (final UnsupportedOperationException | IOException ignored) {
+            // Links are not supported across file systems or on some platforms.
+            return false;
+        }
+    }
+
+    private static boolean isEmpty(final Path dir) {
+        try (final Stream<Path> contents = Files.list(dir)) {
+            return !contents.findAny().isPresent();
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Comparison {
+        boolean test() throws IOException;
+    }
+
+    private static class Manifest implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final String root;
+        final HashMap<String, Entry> entries;
+
+        Manifest(final String root, final HashMap<String, Entry> entries) {
+            this.root = root;
+            this.entries = entries;
+        }
+    }
+
+    /**
+     * The hash of an output file along with the attributes it had when hashed. For
+     * copied files, the attributes of the source are recorded as well.
+     */
+    private static class Entry implements Serializable {
+        private static final long serialVersionUID = 2L;
+
+        final String hash;
+        final long size;
+        final long modified;
+        @Nullable final String source;
+        final long sourceSize;
+        final long sourceModified;
+
+        Entry(final String hash, final Path path, @Nullable final Path source) throws IOException {
+            this.hash = hash;
+            this.size = Files.size(path);
+            this.modified = Files.getLastModifiedTime(path).toMillis();
+            this.source = source != null ? source.toString() : null;
+            this.sourceSize = source != null ? Files.size(source) : 0;
+            this.sourceModified = source != null ? Files.getLastModifiedTime(source).toMillis() : 0;
+        }
+
+        boolean matches(final Path path) {
+            return matches(path, this.size, this.modified);
+        }
+
+        boolean matchesSource(final Path source) {
+            return source.toString().equals(this.source) && matches(source, this.sourceSize, this.sourceModified);
+        }
+
+        private static boolean matches(final Path path, final long size, final long modified) {
+            try {
+                return Files.isRegularFile(path) && Files.size(path) == size
+                    && Files.getLastModifiedTime(path).toMillis() == modified;
+            } catch (final IOException e) {
+                return false;
+            }
+        }
+    }
+}
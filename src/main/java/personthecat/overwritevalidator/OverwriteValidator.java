@@ -2,16 +2,30 @@ package personthecat.overwritevalidator;
 
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
-import org.gradle.api.Task;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.compile.JavaCompile;
+
 import javax.annotation.Nonnull;
 import java.io.File;
-import java.io.IOException;
-import java.io.UncheckedIOException;
-import java.nio.file.Files;
-import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 
 public class OverwriteValidator implements Plugin<Project> {
 
+    /** The name of the task which validates overwrites without generating code. */
+    public static final String VALIDATE_TASK = "validateOverwrites";
+
+    /** The name of the task which validates overwrites and generates code. */
+    public static final String GENERATE_TASK = "generateOverwrites";
+
+    /** The name of the task which validates overwrites continuously as sources change. */
+    public static final String WATCH_TASK = "watchOverwrites";
+
+    /** The location of the metrics report of each task, relative to the build dir. */
+    private static final String METRICS_PATH = "reports/overwriteValidator/%s.json";
+
     @Override
     public void apply(@Nonnull final Project project) {
         if (LauncherContext.getMainSourceSet(project).isEmpty()) {
@@ -19,43 +33,60 @@ public class OverwriteValidator implements Plugin<Project> {
             return;
         }
         OverwriteValidatorExtension.create(project);
-        getCompileJava(project).doFirst(t -> runLauncher(project, t));
-    }
-
+        final OverwriteValidatorExtension config = OverwriteValidatorExtension.get(project);
+        final TaskProvider<OverwriteValidatorTask> validate =
+            registerTask(project, VALIDATE_TASK, false, new File(project.getBuildDir(), "overwriteValidator/validation"));
+        final TaskProvider<OverwriteValidatorTask> generate =
+            registerTask(project, GENERATE_TASK, true, (Callable<File>) config::getOutputDirectory);
+        project.getTasks().register(WATCH_TASK, OverwriteWatchTask.class, t -> {
+            t.usesService(CommonModelService.register(project));
+            t.onlyIf(task -> isPlatform(project));
+        });
 
-    private static Task getCompileJava(final Project project) {
-        for (final Task task : project.getTasks()) {
-            if ("compileJava".equals(task.getName())) {
-                return task;
-            }
-        }
-        throw new NullPointerException("No compileJava task in project");
+        project.getTasks().named("compileJava", JavaCompile.class, compileJava -> {
+            final FileCollection original = compileJava.getSource();
+            compileJava.dependsOn((Callable<Object>) () -> config.generateCode() ? generate : validate);
+            compileJava.setSource((Callable<Object>) () -> isPlatform(project) && config.generateCode()
+                ? generate.flatMap(OverwriteValidatorTask::getOutputDirectory) : original);
+        });
     }
 
-    private static void runLauncher(final Project project, final Task compileJava) {
+    private static TaskProvider<OverwriteValidatorTask> registerTask(
+            final Project project, final String name, final boolean generateCode, final Object outputDirectory) {
         final OverwriteValidatorExtension config = OverwriteValidatorExtension.get(project);
-        if (!project.equals(config.getCommonProject())) {
-            deleteDirectory(config.getOutputDirectory());
-            LauncherContext.initStatic(project);
-            LauncherContext.process(project);
-            if (config.generateCode()) {
-                compileJava.setProperty("source", config.getOutputDirectory());
+        return project.getTasks().register(name, OverwriteValidatorTask.class, t -> {
+            final Provider<CommonModelService> service = CommonModelService.register(project);
+            t.getPlatformName().set(project.getName());
+            t.getSources().from((Callable<Object>) () -> LauncherContext.getMainSourceSet(project));
+            t.getCommonSources().from((Callable<Object>) () -> LauncherContext.getCommonSourceSet(project));
+            t.getCommonProjectPath().set(project.provider(() -> getCommonProjectPath(project)));
+            t.getCommonLayers().set(project.provider(() -> LauncherContext.getCommonLayers(project)));
+            t.getCommonModels().set(service);
+            t.getGenerateCode().set(generateCode);
+            t.getParsingProfile().set(project.provider(config::getParsingProfile));
+            t.getLinkSources().set(project.provider(config::isLinkSources));
+            t.getMaxErrors().set(project.provider(config::getMaxErrors));
+            t.getPersistentCache().set(project.provider(config::isPersistentCache));
+            t.getIncremental().set(project.provider(config::isIncremental));
+            t.getValidationThreads().set(project.provider(config::getValidationThreads));
+            t.getOutputThreads().set(project.provider(config::getOutputThreads));
+            t.getLogMetrics().set(project.provider(config::isLogMetrics));
+            t.getOutputDirectory().set(project.getLayout().dir(project.provider(() -> project.file(outputDirectory))));
+            t.getIncrementalState().set(IncrementalContext.getStateFile(project));
+            if (generateCode) {
+                t.getOutputManifest().set(OutputSync.getManifestFile(project));
             }
-        }
+            t.getMetricsReport().set(project.getLayout().getBuildDirectory().file(String.format(METRICS_PATH, name)));
+            t.onlyIf(task -> isPlatform(project) && config.generateCode() == generateCode);
+            t.usesService(service);
+        });
     }
 
-    private static void deleteDirectory(final File dir) {
-        if (!dir.exists()) {
-            return;
-        }
-        try {
-            Files.walk(dir.toPath()).sorted(Comparator.reverseOrder()).forEach(p -> {
-                if (!p.toFile().delete()) {
-                    System.err.println("Error deleting " + p);
-                }
-            });
-        } catch (final IOException e) {
-            throw new UncheckedIOException("Deleting files", e);
-        }
+    static String getCommonProjectPath(final Project project) {
+        return LauncherContext.getCommonProjects(project).stream().map(Project::getPath).collect(Collectors.joining(" -> "));
+    }
+
+    private static boolean isPlatform(final Project project) {
+        return !project.equals(OverwriteValidatorExtension.get(project).getCommonProject());
     }
 }
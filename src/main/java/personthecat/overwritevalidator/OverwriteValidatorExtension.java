@@ -15,12 +15,30 @@ public class OverwriteValidatorExtension {
     public File outputDirectory;
     public Project commonProject;
     public boolean generateCode;
+    public boolean persistentCache;
+    public boolean incremental;
+    public boolean linkSources;
+    public boolean logMetrics;
+    public int validationThreads;
+    public int outputThreads;
+    public int commonModelBudget;
+    public int maxErrors;
+    public ParsingProfile parsingProfile;
 
     public OverwriteValidatorExtension(final Project project) {
         this.project = project;
         this.outputDirectory = new File(project.getBuildDir(), "generated/sources/validator");
         this.commonProject = project.findProject(":common");
         this.generateCode = true;
+        this.persistentCache = false;
+        this.incremental = false;
+        this.linkSources = false;
+        this.logMetrics = false;
+        this.validationThreads = Runtime.getRuntime().availableProcessors();
+        this.outputThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        this.commonModelBudget = 8;
+        this.maxErrors = Integer.MAX_VALUE;
+        this.parsingProfile = ParsingProfile.FAST;
     }
 
     public OverwriteValidatorExtension(final OverwriteValidatorExtension source) {
@@ -28,6 +46,15 @@ public class OverwriteValidatorExtension {
         this.outputDirectory = source.outputDirectory;
         this.commonProject = source.commonProject;
         this.generateCode = source.generateCode;
+        this.persistentCache = source.persistentCache;
+        this.incremental = source.incremental;
+        this.linkSources = source.linkSources;
+        this.logMetrics = source.logMetrics;
+        this.validationThreads = source.validationThreads;
+        this.outputThreads = source.outputThreads;
+        this.commonModelBudget = source.commonModelBudget;
+        this.maxErrors = source.maxErrors;
+        this.parsingProfile = source.parsingProfile;
     }
 
     public static void create(final Project project) {
@@ -71,4 +98,103 @@ public class OverwriteValidatorExtension {
     public void validateOnly() {
         this.generateCode = false;
     }
+
+    public boolean isPersistentCache() {
+        return this.persistentCache;
+    }
+
+    public void persistentCache() {
+        this.persistentCache = true;
+    }
+
+    public boolean isIncremental() {
+        return this.incremental;
+    }
+
+    public void incremental() {
+        this.incremental = true;
+    }
+
+    public boolean isLinkSources() {
+        return this.linkSources;
+    }
+
+    public void linkSources() {
+        this.linkSources = true;
+    }
+
+    public boolean isLogMetrics() {
+        return this.logMetrics;
+    }
+
+    public void logMetrics() {
+        this.logMetrics = true;
+    }
+
+    public int getValidationThreads() {
+        return this.validationThreads;
+    }
+
+    public void validationThreads(final int validationThreads) {
+        if (validationThreads < 1) {
+            throw new IllegalArgumentException("Validation threads must be at least 1");
+        }
+        this.validationThreads = validationThreads;
+    }
+
+    public int getMaxErrors() {
+        return this.maxErrors;
+    }
+
+    public void maxErrors(final int maxErrors) {
+        if (maxErrors < 1) {
+            throw new IllegalArgumentException("Max errors must be at least 1");
+        }
+        this.maxErrors = maxErrors;
+    }
+
+    public void failFast() {
+        this.maxErrors = 1;
+    }
+
+    public int getOutputThreads() {
+        return this.outputThreads;
+    }
+
+    public void outputThreads(final int outputThreads) {
+        if (outputThreads < 1) {
+            throw new IllegalArgumentException("Output threads must be at least 1");
+        }
+        this.outputThreads = outputThreads;
+    }
+
+    /**
+     * The size of the common source files, in MiB, which may be held as fully parsed
+     * models. This counts the bytes of source and not the heap used by the models,
+     * which is many times larger.
+     */
+    public int getCommonModelBudget() {
+        return this.commonModelBudget;
+    }
+
+    public void commonModelBudget(final int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Common model budget must be at least 1 MiB");
+        }
+        this.commonModelBudget = megabytes;
+    }
+
+    @Nonnull
+    public ParsingProfile getParsingProfile() {
+        return this.parsingProfile;
+    }
+
+    public void parsingProfile(final Object parsingProfile) {
+        Objects.requireNonNull(parsingProfile, "Parsing profile may not be null");
+        if (parsingProfile instanceof ParsingProfile) {
+            this.parsingProfile = (ParsingProfile) parsingProfile;
+        } else {
+            this.parsingProfile = ParsingProfile.from(parsingProfile.toString());
+        }
+    }
 }
@@ -0,0 +1,145 @@
+package personthecat.overwritevalidator;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.LocalState;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import javax.annotation.Nullable;
+
+/**
+ * Validates the overwrite classes in a platform project and, optionally, generates
+ * the sources to be compiled in their place.
+ * <p>
+ *   All of the sources and settings which affect the output of this task are declared
+ *   as inputs, which allows Gradle to skip it when nothing has changed or to restore
+ *   its outputs from the build cache. Settings which only affect how the work is done
+ *   are internal. The task runs from these properties alone and never reads the
+ *   project or its extension once the build has been configured.
+ * </p>
+ */
+@CacheableTask
+public abstract class OverwriteValidatorTask extends DefaultTask {
+
+    @Internal
+    public abstract Property<String> getPlatformName();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getSources();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getCommonSources();
+
+    @Input
+    public abstract Property<String> getCommonProjectPath();
+
+    /** Each common project overwritten by the platform, nearest first. */
+    @Internal
+    public abstract ListProperty<LauncherContext.CommonLayer> getCommonLayers();
+
+    @Internal
+    public abstract Property<CommonModelService> getCommonModels();
+
+    @Input
+    public abstract Property<Boolean> getGenerateCode();
+
+    @Input
+    public abstract Property<ParsingProfile> getParsingProfile();
+
+    @Input
+    public abstract Property<Boolean> getLinkSources();
+
+    @Input
+    public abstract Property<Integer> getMaxErrors();
+
+    @Input
+    public abstract Property<Boolean> getPersistentCache();
+
+    @Internal
+    public abstract Property<Boolean> getIncremental();
+
+    @Internal
+    public abstract Property<Integer> getValidationThreads();
+
+    @Internal
+    public abstract Property<Integer> getOutputThreads();
+
+    @Internal
+    public abstract Property<Boolean> getLogMetrics();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDirectory();
+
+    @LocalState
+    public abstract RegularFileProperty getIncrementalState();
+
+    @Optional
+    @LocalState
+    public abstract RegularFileProperty getOutputManifest();
+
+    @Internal
+    public abstract RegularFileProperty getMetricsReport();
+
+    @TaskAction
+    public void run() {
+        final Metrics metrics = Metrics.begin();
+        try {
+            final PlatformSettings settings = this.getSettings();
+            final LauncherContext.Cache cache;
+            try (final Metrics.Phase ignored = Metrics.phase("common")) {
+                cache = LauncherContext.getCache(this.getCommonModels().get().getModels(), this.getCommonLayers().get(),
+                    settings.getParsingProfile(), this.getPersistentCache().get());
+            }
+            final OutputSync output = this.getOutput(settings);
+            if (this.getIncremental().get()) {
+                final IncrementalContext.Session session = new IncrementalContext.Session();
+                IncrementalContext.process(settings, cache, output, this.getIncrementalState().get().getAsFile(), session, null);
+            } else {
+                LauncherContext.process(settings, cache, output);
+            }
+        } finally {
+            metrics.end();
+            metrics.write(this.getMetricsReport().get().getAsFile());
+            if (this.getLogMetrics().get()) {
+                this.getLogger().lifecycle("{}: {}", this.getPath(), metrics.getSummary());
+            }
+        }
+    }
+
+    private PlatformSettings getSettings() {
+        final PlatformSettings settings = new PlatformSettings(this.getPlatformName().get(), this.getSources().getFiles())
+            .parsingProfile(this.getParsingProfile().get())
+            .validationThreads(this.getValidationThreads().get())
+            .outputThreads(this.getOutputThreads().get())
+            .maxErrors(this.getMaxErrors().get());
+        if (this.getGenerateCode().get()) {
+            settings.generateCode(this.getOutputDirectory().get().getAsFile());
+        }
+        if (this.getLinkSources().get()) {
+            settings.linkSources();
+        }
+        return settings;
+    }
+
+    @Nullable
+    private OutputSync getOutput(final PlatformSettings settings) {
+        if (!settings.generateCode()) {
+            return null;
+        }
+        return new OutputSync(settings.getOutputDirectory(), settings.isLinkSources(), this.getOutputManifest().getAsFile().getOrNull());
+    }
+}
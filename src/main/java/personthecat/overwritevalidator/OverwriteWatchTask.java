@@ -0,0 +1,17 @@
+package personthecat.overwritevalidator;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Validates the overwrite classes in a platform project every time its sources or
+ * those of its common projects change, until the build is cancelled. Code is also
+ * generated unless the project only validates its overwrites.
+ */
+public abstract class OverwriteWatchTask extends DefaultTask {
+
+    @TaskAction
+    public void run() {
+        WatchContext.watch(this.getProject());
+    }
+}
@@ -0,0 +1,69 @@
+package personthecat.overwritevalidator;
+
+import spoon.compiler.Environment;
+
+/**
+ * Determines how much work Spoon does when building each of the models used by the
+ * plugin. Each model is configured for the {@link Phase} in which it is used.
+ * <p>
+ *   No classpath is ever given to Spoon, so every profile runs in no-classpath mode.
+ *   References to types outside of the model are left unresolved rather than failing
+ *   the build, and are only compared by name. Imports are always fixed by the plugin
+ *   itself, so Spoon never computes them.
+ * </p>
+ */
+public enum ParsingProfile {
+
+    /**
+     * Only builds the comments of a model when they will be written to an output, i.e.
+     * for the platform sources being generated and the common members being inherited.
+     */
+    FAST,
+
+    /**
+     * Builds the comments of every model, as Spoon does by default. This is slower, but
+     * may help when troubleshooting the models seen by the processors.
+     */
+    COMPLETE;
+
+    /** Applies the settings of this profile for the given phase. */
+    public void configure(final Environment environment, final Phase phase) {
+        environment.setNoClasspath(true);
+        environment.setAutoImports(false);
+        environment.setCommentEnabled(this == COMPLETE || phase.printed);
+    }
+
+    /**
+     * Finds a profile by name, ignoring case.
+     *
+     * @throws IllegalArgumentException If no such profile exists.
+     */
+    public static ParsingProfile from(final String name) {
+        for (final ParsingProfile profile : values()) {
+            if (profile.name().equalsIgnoreCase(name)) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("Unknown parsing profile: " + name);
+    }
+
+    public enum Phase {
+        /** The platform sources, when they are only being validated. */
+        VALIDATE(false),
+
+        /** The platform sources, when they are being written to the output directory. */
+        GENERATE(true),
+
+        /** The signatures of the common sources, without any method bodies. */
+        COMMON_SIGNATURES(false),
+
+        /** A common source file whose members may be copied into the output. */
+        COMMON_MODEL(true);
+
+        final boolean printed;
+
+        Phase(final boolean printed) {
+            this.printed = printed;
+        }
+    }
+}
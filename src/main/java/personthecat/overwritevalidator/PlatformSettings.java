@@ -0,0 +1,142 @@
+package personthecat.overwritevalidator;
+
+import org.gradle.api.Project;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Everything needed to validate or generate a single platform, independently of
+ * Gradle. Within a build, these settings are taken from the project and its
+ * {@link OverwriteValidatorExtension}. The {@link BatchRunner} creates them directly.
+ */
+public class PlatformSettings {
+
+    private final String name;
+    private final Set<File> sources;
+    private File outputDirectory;
+    private boolean generateCode;
+    private boolean linkSources;
+    private ParsingProfile parsingProfile;
+    private int validationThreads;
+    private int outputThreads;
+    private int maxErrors;
+
+    /**
+     * @param name The name of the platform, as it appears in error messages.
+     * @param sources The source directories of the platform.
+     */
+    public PlatformSettings(final String name, final Collection<File> sources) {
+        this.name = name;
+        this.sources = new LinkedHashSet<>();
+        for (final File dir : sources) {
+            if (dir.exists()) {
+                this.sources.add(dir.getAbsoluteFile());
+            }
+        }
+        this.generateCode = false;
+        this.linkSources = false;
+        this.parsingProfile = ParsingProfile.FAST;
+        this.validationThreads = Runtime.getRuntime().availableProcessors();
+        this.outputThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        this.maxErrors = Integer.MAX_VALUE;
+    }
+
+    public static PlatformSettings of(final Project project) {
+        final OverwriteValidatorExtension config = OverwriteValidatorExtension.get(project);
+        final PlatformSettings settings = new PlatformSettings(project.getName(), LauncherContext.getMainSourceSet(project))
+            .parsingProfile(config.getParsingProfile())
+            .validationThreads(config.getValidationThreads())
+            .outputThreads(config.getOutputThreads())
+            .maxErrors(config.getMaxErrors());
+        settings.outputDirectory = config.getOutputDirectory();
+        settings.generateCode = config.generateCode();
+        settings.linkSources = config.isLinkSources();
+        return settings;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public Set<File> getSources() {
+        return Collections.unmodifiableSet(this.sources);
+    }
+
+    public boolean generateCode() {
+        return this.generateCode;
+    }
+
+    @Nonnull
+    public File getOutputDirectory() {
+        Objects.requireNonNull(this.outputDirectory, "No output directory defined for " + this.name);
+        return this.outputDirectory;
+    }
+
+    /** Generates code into the given directory. Otherwise, the platform is only validated. */
+    public PlatformSettings generateCode(final File outputDirectory) {
+        this.outputDirectory = outputDirectory;
+        this.generateCode = true;
+        return this;
+    }
+
+    public boolean isLinkSources() {
+        return this.linkSources;
+    }
+
+    public PlatformSettings linkSources() {
+        this.linkSources = true;
+        return this;
+    }
+
+    public ParsingProfile getParsingProfile() {
+        return this.parsingProfile;
+    }
+
+    public PlatformSettings parsingProfile(final ParsingProfile parsingProfile) {
+        this.parsingProfile = Objects.requireNonNull(parsingProfile, "Parsing profile may not be null");
+        return this;
+    }
+
+    public int getValidationThreads() {
+        return this.validationThreads;
+    }
+
+    public PlatformSettings validationThreads(final int validationThreads) {
+        if (validationThreads < 1) {
+            throw new IllegalArgumentException("Validation threads must be at least 1");
+        }
+        this.validationThreads = validationThreads;
+        return this;
+    }
+
+    public int getOutputThreads() {
+        return this.outputThreads;
+    }
+
+    public PlatformSettings outputThreads(final int outputThreads) {
+        if (outputThreads < 1) {
+            throw new IllegalArgumentException("Output threads must be at least 1");
+        }
+        this.outputThreads = outputThreads;
+        return this;
+    }
+
+    public int getMaxErrors() {
+        return this.maxErrors;
+    }
+
+    /** Stops validating once this many errors have been found. */
+    public PlatformSettings maxErrors(final int maxErrors) {
+        if (maxErrors < 1) {
+            throw new IllegalArgumentException("Max errors must be at least 1");
+        }
+        this.maxErrors = maxErrors;
+        return this;
+    }
+}
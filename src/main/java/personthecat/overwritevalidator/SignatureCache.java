@@ -0,0 +1,116 @@
+package personthecat.overwritevalidator;
+
+import org.gradle.api.Project;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persists the signatures of a common project under its build directory so that
+ * new Gradle daemons do not need to parse the common sources again. Entries are
+ * keyed on the content hash of every source file and will be discarded as soon as
+ * any file in the common project is added, removed, or modified.
+ */
+public class SignatureCache {
+
+    /** The version of the {@link Data} format. */
+    private static final int FORMAT_VERSION = 4;
+
+    /** The location of the cache file, relative to the common project's build dir. */
+    private static final String CACHE_PATH = "overwriteValidator/signatures.bin";
+
+    private final VersionedFile<Data> file;
+    private final Iterable<File> sources;
+
+    public SignatureCache(final Project common) {
+        this(getFile(common), LauncherContext.getMainSourceSet(common));
+    }
+
+    public SignatureCache(final File file, final Iterable<File> sources) {
+        this.file = new VersionedFile<>(file, Data.class, FORMAT_VERSION, "signature cache");
+        this.sources = sources;
+    }
+
+    public static File getFile(final Project common) {
+        return new File(common.getBuildDir(), CACHE_PATH);
+    }
+
+    /**
+     * Computes the content hash of every Java source file in the common project.
+     *
+     * @return A sorted map of absolute file path -> hex encoded SHA-256 hash.
+     */
+    public Map<String, String> hashSources() {
+        final Map<String, String> hashes = new TreeMap<>();
+        for (final File dir : this.sources) {
+            for (final Path p : listJavaFiles(dir.toPath())) {
+                hashes.put(p.toAbsolutePath().toString(), hash(p));
+            }
+        }
+        return hashes;
+    }
+
+    @Nullable
+    public List<TypeSignature> read(final Map<String, String> hashes) {
+        final Data data = this.file.read();
+        return data != null && data.hashes.equals(hashes) ? data.signatures : null;
+    }
+
+    public void write(final Map<String, String> hashes, final List<TypeSignature> signatures) {
+        this.file.write(new Data(new TreeMap<>(hashes), new ArrayList<>(signatures)));
+    }
+
+    static List<Path> listJavaFiles(final Path dir) {
+        try (final Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(p -> p.toString().endsWith(".java")).collect(Collectors.toList());
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Hashing sources", e);
+        }
+    }
+
+    static String hash(final Path p) {
+        try {
+            return hash(Files.readAllBytes(p));
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Hashing sources", e);
+        }
+    }
+
+    static String hash(final byte[] content) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            final StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (final byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is unavailable", e);
+        }
+    }
+
+    private static class Data implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final TreeMap<String, String> hashes;
+        final ArrayList<TypeSignature> signatures;
+
+        Data(final TreeMap<String, String> hashes, final ArrayList<TypeSignature> signatures) {
+            this.hashes = hashes;
+            this.signatures = signatures;
+        }
+    }
+}
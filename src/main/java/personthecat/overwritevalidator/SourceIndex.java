@@ -0,0 +1,202 @@
+package personthecat.overwritevalidator;
+
+import personthecat.overwritevalidator.JavaLexer.Token;
+import personthecat.overwritevalidator.JavaLexer.TokenType;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Maps the qualified name of every top-level type in a common project to the file
+ * declaring it. The index is built by lexing the package declaration and type
+ * headers of each file, which is far cheaper than parsing them, and is only needed
+ * for types which do not follow the usual path convention.
+ */
+final class SourceIndex {
+
+    /** The simple name of the annotation marking types which platforms may need to overwrite. */
+    private static final String TARGET_ANNOTATION = "OverwriteTarget";
+    private static final String STATIC = "static ";
+
+    private final Map<String, File> types;
+    private final List<File> targetCandidates;
+
+    private SourceIndex(final Map<String, File> types, final List<File> targetCandidates) {
+        this.types = Collections.unmodifiableMap(types);
+        this.targetCandidates = Collections.unmodifiableList(targetCandidates);
+    }
+
+    static SourceIndex scan(final Iterable<File> dirs) {
+        final Map<String, File> types = new HashMap<>();
+        final TreeSet<File> targetCandidates = new TreeSet<>();
+        for (final File dir : dirs) {
+            for (final Path p : SignatureCache.listJavaFiles(dir.toPath())) {
+                final File file = p.toFile().getAbsoluteFile();
+                final String source = readFile(file);
+                for (final String type : getDeclaredTypes(source)) {
+                    types.putIfAbsent(type, file);
+                }
+                if (source.contains(TARGET_ANNOTATION)) {
+                    targetCandidates.add(file);
+                }
+            }
+        }
+        return new SourceIndex(types, new ArrayList<>(targetCandidates));
+    }
+
+    static SourceIndex of(final List<TypeSignature> signatures) {
+        final Map<String, File> types = new HashMap<>();
+        final TreeSet<File> targetCandidates = new TreeSet<>();
+        for (final TypeSignature signature : signatures) {
+            final File file = signature.getFile();
+            if (file != null) {
+                types.putIfAbsent(signature.getQualifiedName(), file.getAbsoluteFile());
+                if (signature.isRequiredTarget()) {
+                    targetCandidates.add(file.getAbsoluteFile());
+                }
+            }
+        }
+        return new SourceIndex(types, new ArrayList<>(targetCandidates));
+    }
+
+    @Nullable
+    File getFile(final String qualifiedName) {
+        return this.types.get(qualifiedName);
+    }
+
+    /**
+     * Gets every file which may declare a required overwrite target. This is a
+     * superset of the real targets, which can only be known after parsing.
+     */
+    List<File> getTargetCandidates() {
+        return this.targetCandidates;
+    }
+
+    /**
+     * Lexes the top-level declarations in a source file.
+     *
+     * @param source The raw contents of a Java source file.
+     * @return The qualified name of every top-level type in the file.
+     */
+    static List<String> getDeclaredTypes(final String source) {
+        final List<Token> tokens = JavaLexer.tokenize(source);
+        final List<String> types = new ArrayList<>();
+        String pkg = "";
+        int depth = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            final Token token = tokens.get(i);
+            if (token.is(source, "{")) {
+                depth++;
+            } else if (token.is(source, "}")) {
+                depth--;
+            } else if (depth == 0 && token.is(source, "package")) {
+                pkg = readName(source, tokens, i + 1) + ".";
+            } else if (depth == 0 && isTypeKeyword(source, tokens, i)) {
+                types.add(pkg + tokens.get(i + 1).getText(source));
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Lexes the import declarations in a source file.
+     *
+     * @param source The raw contents of a Java source file.
+     * @return The name of every import, excluding <code>static</code>, e.g. <code>a.b.*</code>.
+     */
+    static List<String> getImports(final String source) {
+        final List<String> imports = new ArrayList<>();
+        for (final String declaration : getImportDeclarations(source)) {
+            imports.add(declaration.startsWith(STATIC) ? declaration.substring(STATIC.length()) : declaration);
+        }
+        return imports;
+    }
+
+    /**
+     * Variant of {@link #getImports} which keeps the <code>static</code> keyword,
+     * e.g. <code>static a.b.C.d</code>.
+     */
+    static List<String> getImportDeclarations(final String source) {
+        final List<Token> tokens = JavaLexer.tokenize(source);
+        final List<String> imports = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            final Token token = tokens.get(i);
+            if (token.is(source, "{")) {
+                break;
+            } else if (token.is(source, "import")) {
+                final boolean isStatic = i + 1 < tokens.size() && tokens.get(i + 1).is(source, "static");
+                final String name = readName(source, tokens, isStatic ? i + 2 : i + 1);
+                imports.add(isStatic ? STATIC + name : name);
+            }
+        }
+        return imports;
+    }
+
+    /**
+     * Lexes every identifier in a source file. This is a superset of the simple
+     * names of the types it references, which is enough to find the files it may
+     * depend on without parsing it.
+     */
+    static Set<String> getIdentifiers(final String source) {
+        final Set<String> identifiers = new HashSet<>();
+        for (final Token token : JavaLexer.tokenize(source)) {
+            if (token.getType() == TokenType.IDENTIFIER) {
+                identifiers.add(token.getText(source));
+            }
+        }
+        return identifiers;
+    }
+
+    private static boolean isTypeKeyword(final String source, final List<Token> tokens, final int i) {
+        final Token token = tokens.get(i);
+        if (i + 1 >= tokens.size() || tokens.get(i + 1).getType() != TokenType.IDENTIFIER) {
+            return false;
+        } else if (i > 0 && tokens.get(i - 1).is(source, ".")) {
+            return false;
+        }
+        return token.is(source, "class") || token.is(source, "interface") || token.is(source, "enum")
+            || token.is(source, "record");
+    }
+
+    private static String readName(final String source, final List<Token> tokens, final int start) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = start; i < tokens.size() && !tokens.get(i).is(source, ";"); i++) {
+            sb.append(tokens.get(i).getText(source));
+        }
+        return sb.toString();
+    }
+
+    static List<File> listJavaFiles(final File dir) {
+        final File[] files = dir.listFiles((d, name) -> name.endsWith(".java"));
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        final List<File> list = new ArrayList<>();
+        for (final File f : files) {
+            list.add(f.getAbsoluteFile());
+        }
+        Collections.sort(list);
+        return list;
+    }
+
+    static String readFile(final File file) {
+        try {
+            return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Reading common sources", e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package personthecat.overwritevalidator;
+
+import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtArrayTypeReference;
+import spoon.reflect.reference.CtTypeParameterReference;
+import spoon.reflect.reference.CtTypeReference;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers the supertypes of every type which has been compared in a single model,
+ * so that subtype checks are answered by name.
+ * <p>
+ *   In no-classpath mode, Spoon builds shadow types for any supertype it cannot find
+ *   while resolving a reference. These are added to the packages of the model, which
+ *   are not thread-safe. Types are therefore resolved on a single thread, either as
+ *   they are first compared or up front. Once the hierarchy is frozen, it never
+ *   touches the model again and may be read by any number of threads.
+ * </p>
+ * <p>
+ *   Types are resolved by name in this model, including those which were named by a
+ *   common project, so the shared common models are never resolved at all. Arrays
+ *   are only compared to arrays of the same dimension, and type variables are
+ *   compared by their erasure.
+ * </p>
+ */
+public class TypeHierarchy {
+
+    private static final String OBJECT_TYPE = "java.lang.Object";
+    private static final String ARRAY = "[]";
+    private static final Set<String> PRIMITIVES = new HashSet<>(
+        Arrays.asList("boolean", "byte", "char", "short", "int", "long", "float", "double", "void"));
+
+    private final Factory factory;
+    private final Map<String, Set<String>> supertypes = new HashMap<>();
+    private boolean frozen;
+
+    public TypeHierarchy(final Factory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Gets the name by which a type in this model gets resolved, i.e. its qualified
+     * name or, for type variables, that of their erasure.
+     */
+    public static String getResolvedName(final CtTypeReference<?> type) {
+        if (type instanceof CtArrayTypeReference<?>) {
+            return getResolvedName(((CtArrayTypeReference<?>) type).getComponentType()) + ARRAY;
+        } else if (type instanceof CtTypeParameterReference) {
+            try {
+                return type.getTypeErasure().getQualifiedName();
+            } catch (final RuntimeException ignored) {
+                // The declaration of a type variable may not be found in no-classpath mode.
+                return type.getQualifiedName();
+            }
+        }
+        return type.getQualifiedName();
+    }
+
+    /**
+     * Resolves the supertypes of a type ahead of time, unless they are already known.
+     *
+     * @param name The resolved name of the type.
+     * @throws IllegalStateException If this hierarchy has been frozen.
+     */
+    public void resolve(final String name) {
+        final String component = getComponentName(name);
+        if (!PRIMITIVES.contains(component)) {
+            this.getSupertypes(component);
+        }
+    }
+
+    /**
+     * Prevents any further types from being resolved. After this, every type which gets
+     * compared must have been resolved and this object may be shared between threads.
+     */
+    public void freeze() {
+        this.frozen = true;
+    }
+
+    /**
+     * Determines whether the child type may be used in place of the parent type.
+     *
+     * @param child The resolved name of the child type.
+     * @param parent The resolved name of the parent type.
+     * @throws IllegalStateException If either type is unresolved and this hierarchy
+     *                               has been frozen.
+     */
+    public boolean isAssignableTo(final String child, final String parent) {
+        if (child.equals(parent)) {
+            return true;
+        }
+        final String childComponent = getComponentName(child);
+        final String parentComponent = getComponentName(parent);
+        final int childDimensions = (child.length() - childComponent.length()) / ARRAY.length();
+        final int parentDimensions = (parent.length() - parentComponent.length()) / ARRAY.length();
+        if (childDimensions != parentDimensions) {
+            return childDimensions > parentDimensions && OBJECT_TYPE.equals(parentComponent);
+        } else if (PRIMITIVES.contains(childComponent) || PRIMITIVES.contains(parentComponent)) {
+            return false;
+        } else if (OBJECT_TYPE.equals(parentComponent)) {
+            return true;
+        }
+        return this.getSupertypes(childComponent).contains(parentComponent);
+    }
+
+    private Set<String> getSupertypes(final String name) {
+        final Set<String> names = this.supertypes.get(name);
+        if (names != null) {
+            return names;
+        } else if (this.frozen) {
+            throw new UnresolvedTypeException(name);
+        }
+        final Set<String> resolved = new HashSet<>();
+        collectSupertypes(this.factory.Type().createReference(name), resolved);
+        this.supertypes.put(name, Collections.unmodifiableSet(resolved));
+        return resolved;
+    }
+
+    private static void collectSupertypes(@Nullable final CtTypeReference<?> type, final Set<String> names) {
+        if (type == null || !names.add(type.getQualifiedName())) {
+            return;
+        }
+        collectSupertypes(type.getSuperclass(), names);
+        for (final CtTypeReference<?> superInterface : type.getSuperInterfaces()) {
+            collectSupertypes(superInterface, names);
+        }
+    }
+
+    private static String getComponentName(final String name) {
+        String component = name;
+        while (component.endsWith(ARRAY)) {
+            component = component.substring(0, component.length() - ARRAY.length());
+        }
+        return component;
+    }
+
+    private static class UnresolvedTypeException extends IllegalStateException {
+        UnresolvedTypeException(final String name) {
+            super("Type was not resolved before the hierarchy was frozen: " + name);
+        }
+    }
+}
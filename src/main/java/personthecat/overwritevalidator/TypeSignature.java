@@ -0,0 +1,111 @@
+package personthecat.overwritevalidator;
+
+import personthecat.overwritevalidator.processors.OverwriteTargetProcessor;
+import spoon.reflect.declaration.CtAnnotation;
+import spoon.reflect.declaration.CtCompilationUnit;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.CtTypeMember;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The subset of a common type which is needed to validate its overwrites. These
+ * signatures are extracted once from the common model and may be persisted between
+ * builds so that the common project does not need to be parsed again.
+ */
+public class TypeSignature implements Serializable {
+
+    private static final long serialVersionUID = 2L;
+
+    private final String qualifiedName;
+    private final String simpleName;
+    private final String packageName;
+    @Nullable private final String file;
+    private final boolean requiredTarget;
+    private final List<String> annotations;
+    private final List<String> imports;
+    private final List<MemberSignature> members;
+    private final List<TypeSignature> nestedTypes;
+
+    private TypeSignature(final CtType<?> type) {
+        final File file = type.getPosition().getFile();
+        this.qualifiedName = type.getQualifiedName();
+        this.simpleName = type.getSimpleName();
+        this.packageName = type.getPackage().getQualifiedName();
+        this.file = file != null ? file.getPath() : null;
+        this.requiredTarget = type.isTopLevel() && OverwriteTargetProcessor.isRequiredTarget(type);
+        this.annotations = new ArrayList<>();
+        for (final CtAnnotation<?> a : type.getAnnotations()) {
+            this.annotations.add(a.getAnnotationType().getQualifiedName());
+        }
+        this.imports = type.isTopLevel() ? readImports(type) : Collections.emptyList();
+        this.members = new ArrayList<>();
+        for (final CtTypeMember member : type.getTypeMembers()) {
+            final MemberSignature signature = MemberSignature.of(member);
+            if (signature != null) {
+                this.members.add(signature);
+            }
+        }
+        this.nestedTypes = new ArrayList<>();
+        for (final CtType<?> nested : type.getNestedTypes()) {
+            this.nestedTypes.add(new TypeSignature(nested));
+        }
+    }
+
+    public static TypeSignature of(final CtType<?> type) {
+        return new TypeSignature(type);
+    }
+
+    private static List<String> readImports(final CtType<?> type) {
+        final CtCompilationUnit unit = type.getPosition().getCompilationUnit();
+        final String source = unit != null ? unit.getOriginalSourceCode() : null;
+        return source != null ? new ArrayList<>(SourceIndex.getImportDeclarations(source)) : Collections.emptyList();
+    }
+
+    public String getQualifiedName() {
+        return this.qualifiedName;
+    }
+
+    public String getSimpleName() {
+        return this.simpleName;
+    }
+
+    public String getPackageName() {
+        return this.packageName;
+    }
+
+    @Nullable
+    public File getFile() {
+        return this.file != null ? new File(this.file) : null;
+    }
+
+    public boolean isRequiredTarget() {
+        return this.requiredTarget;
+    }
+
+    public List<String> getAnnotations() {
+        return Collections.unmodifiableList(this.annotations);
+    }
+
+    /**
+     * Gets the imports declared by the file containing this type, as written in the
+     * source, e.g. <code>a.b.*</code> or <code>static a.b.C.d</code>. These are only
+     * recorded for top-level types.
+     */
+    public List<String> getImports() {
+        return Collections.unmodifiableList(this.imports);
+    }
+
+    public List<MemberSignature> getMembers() {
+        return Collections.unmodifiableList(this.members);
+    }
+
+    public List<TypeSignature> getNestedTypes() {
+        return Collections.unmodifiableList(this.nestedTypes);
+    }
+}
@@ -0,0 +1,73 @@
+package personthecat.overwritevalidator;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+
+/**
+ * A file holding a single serialized object, preceded by the version of its format.
+ * Files of any other version are ignored and files which cannot be read are
+ * discarded, so that the data is simply created again. Errors are reported, but are
+ * never thrown.
+ *
+ * @param <T> The type of object stored in the file.
+ */
+final class VersionedFile<T extends Serializable> {
+
+    private final File file;
+    private final Class<T> type;
+    private final int version;
+    private final String description;
+
+    /**
+     * @param file The location of the file.
+     * @param type The type of object stored in the file.
+     * @param version Identifies the shape of the data, which must be incremented
+     *                whenever it changes.
+     * @param description Describes the contents of the file in error messages.
+     */
+    VersionedFile(final File file, final Class<T> type, final int version, final String description) {
+        this.file = file;
+        this.type = type;
+        this.version = version;
+        this.description = description;
+    }
+
+    /** @return The object in the file, or null if it is missing, outdated, or unreadable. */
+    @Nullable
+    T read() {
+        if (!this.file.exists()) {
+            return null;
+        }
+        try (final InputStream is = Files.newInputStream(this.file.toPath());
+                final ObjectInputStream ois = new ObjectInputStream(is)) {
+            if (ois.readInt() == this.version) {
+                return this.type.cast(ois.readObject());
+            }
+        } catch (final IOException | ClassNotFoundException | ClassCastException e) {
+            System.err.println("Discarding unreadable " + this.description + " " + this.file + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    void write(final T data) {
+        final File parent = this.file.getAbsoluteFile().getParentFile();
+        if (!(parent.exists() || parent.mkdirs())) {
+            System.err.println("Error creating " + parent);
+            return;
+        }
+        try (final OutputStream os = Files.newOutputStream(this.file.toPath());
+                final ObjectOutputStream oos = new ObjectOutputStream(os)) {
+            oos.writeInt(this.version);
+            oos.writeObject(data);
+        } catch (final IOException e) {
+            System.err.println("Error writing " + this.description + " " + this.file + ": " + e.getMessage());
+        }
+    }
+}
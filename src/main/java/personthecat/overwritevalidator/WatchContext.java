@@ -0,0 +1,135 @@
+package personthecat.overwritevalidator;
+
+import org.gradle.api.Project;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Validates a platform project continuously, processing it again whenever any of its
+ * sources or those of its common projects change.
+ * <p>
+ *   The common projects stay loaded in the {@link CommonModelService} for as long as
+ *   this runs, so a change to the platform never causes the common project to be
+ *   parsed again. Each change is then handled by the {@link IncrementalContext}, which
+ *   only hashes the files reported by the watcher, only parses the affected platform
+ *   files, and only updates their outputs. A change
+ *   to a common file releases its layer, which is parsed again lazily, and dirties
+ *   the platform files overwriting it.
+ * </p>
+ * <p>
+ *   Errors are reported after each change, but never stop the watcher.
+ * </p>
+ */
+public final class WatchContext {
+
+    /** How long to wait for further events after a change before processing it. */
+    private static final long QUIET_MILLIS = 50;
+
+    private WatchContext() {}
+
+    /**
+     * Processes the given project once and then again after each change until the
+     * thread is interrupted.
+     *
+     * @param project The platform project which the plugin has been applied to.
+     */
+    public static void watch(final Project project) {
+        final Set<File> dirs = new LinkedHashSet<>(LauncherContext.getMainSourceSet(project));
+        dirs.addAll(LauncherContext.getCommonSourceSet(project));
+        try (final WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            final Map<WatchKey, Path> keys = new HashMap<>();
+            for (final File dir : dirs) {
+                registerAll(watcher, keys, dir.toPath());
+            }
+            final IncrementalContext.Session session = new IncrementalContext.Session();
+            run(project, session, null, "Initial build");
+            while (!keys.isEmpty()) {
+                final Set<Path> changed = new LinkedHashSet<>();
+                poll(watcher, keys, changed, watcher.take());
+                WatchKey key;
+                while ((key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    poll(watcher, keys, changed, key);
+                }
+                if (!changed.isEmpty()) {
+                    final String cause = changed.size() == 1 ? changed.iterator().next().toString() : changed.size() + " changes";
+                    run(project, session, changed, cause);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Watching sources", e);
+        }
+    }
+
+    private static void run(final Project project, final IncrementalContext.Session session, @Nullable final Set<Path> changed,
+            final String cause) {
+        final long start = System.nanoTime();
+        try {
+            if (changed != null) {
+                CommonModelService.get(project).getModels().invalidate(changed);
+            }
+            IncrementalContext.process(project, session, changed);
+            project.getLogger().lifecycle("{}: OK in {}ms", cause, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (final RuntimeException e) {
+            System.err.println(cause + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Collects the Java files changed by the events of a single key. New directories
+     * are watched along with their contents, which are treated as having changed.
+     */
+    private static void poll(final WatchService watcher, final Map<WatchKey, Path> keys, final Set<Path> changed,
+            final WatchKey key) throws IOException {
+        final Path dir = keys.get(key);
+        if (dir == null) {
+            key.cancel();
+            return;
+        }
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Some events were lost, so every file in this directory is checked again.
+                changed.add(dir.toAbsolutePath().normalize());
+                continue;
+            }
+            final Path p = dir.resolve((Path) event.context()).toAbsolutePath().normalize();
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(p)) {
+                registerAll(watcher, keys, p);
+                changed.add(p);
+            } else if (p.toString().endsWith(".java")) {
+                changed.add(p);
+            }
+        }
+        if (!key.reset()) {
+            keys.remove(key);
+        }
+    }
+
+    private static void registerAll(final WatchService watcher, final Map<WatchKey, Path> keys, final Path root)
+            throws IOException {
+        try (final Stream<Path> paths = Files.walk(root)) {
+            for (final Path dir : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator) {
+                final WatchKey key = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                keys.put(key, dir);
+            }
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package personthecat.overwritevalidator.processors;
+
+import personthecat.overwritevalidator.JavaLexer;
+import personthecat.overwritevalidator.JavaLexer.Token;
+import personthecat.overwritevalidator.JavaLexer.TokenType;
+import personthecat.overwritevalidator.TypeSignature;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+
+/**
+ * Repairs the imports of a source file generated by Spoon in a single pass over its
+ * tokens.
+ * <p>
+ *   Every import declared by the generated file is dropped and replaced with the
+ *   imports of the common file, after which qualified names in the body are shortened
+ *   to the simple names made available by those imports, wherever those names are
+ *   unambiguous. Because the file is lexed, the contents of strings and comments are
+ *   never modified.
+ * </p>
+ */
+final class ImportRewriter {
+
+    private static final String STATIC = "static ";
+    private static final String JAVA_LANG = "java.lang";
+
+    /** The prefix of every package provided by the Java platform. */
+    private static final String JAVA_PACKAGES = "java.";
+
+    private ImportRewriter() {}
+
+    /**
+     * Gets the imports of a common file, which were recorded along with the signature
+     * of its top-level type. The file itself is not read again.
+     *
+     * @param signature The signature of a top-level common type.
+     * @return Every import in the file, in order.
+     */
+    static List<ImportData> readImports(final TypeSignature signature) {
+        final List<ImportData> imports = new ArrayList<>();
+        for (final String declaration : signature.getImports()) {
+            if (declaration.startsWith(STATIC)) {
+                imports.add(new ImportData(true, declaration.substring(STATIC.length())));
+            } else {
+                imports.add(new ImportData(false, declaration));
+            }
+        }
+        return imports;
+    }
+
+    /**
+     * Rewrites the imports of a single generated file.
+     *
+     * @param type The top-level type declared by the file.
+     * @param source The contents of the file as printed by Spoon.
+     * @param commonImports The imports of the common file it overwrites.
+     * @return The source with a single, sorted import block and shortened names.
+     */
+    static String rewrite(final CtType<?> type, final String source, final Collection<ImportData> commonImports) {
+        final List<Token> tokens = JavaLexer.tokenize(source);
+        final StringBuilder sb = new StringBuilder(source.length());
+        final Map<String, ImportData> imports = new LinkedHashMap<>();
+        for (final ImportData i : commonImports) {
+            imports.putIfAbsent(i.getKey(), i);
+        }
+        final List<int[]> removed = new ArrayList<>();
+        int importsAt = -1;
+        int i = 0;
+        for (; i < tokens.size(); i++) {
+            final Token token = tokens.get(i);
+            if (token.is(source, "package")) {
+                i = findSemicolon(source, tokens, i);
+                importsAt = getLineEnd(source, tokens.get(i).getEnd());
+            } else if (token.is(source, "import")) {
+                final int end = findSemicolon(source, tokens, i);
+                final ImportData data = readImport(source, tokens, i, end);
+                imports.putIfAbsent(data.getKey(), data);
+                removed.add(new int[] { getLineStart(source, token.getStart()), getLineEnd(source, tokens.get(end).getEnd()) });
+                i = end;
+            } else if (!token.is(source, ";")) {
+                break;
+            }
+        }
+        if (importsAt < 0) {
+            throw new IllegalStateException("No package declaration in Java file.");
+        }
+        final List<ImportData> sorted = new ArrayList<>(imports.values());
+        sorted.sort(Comparator.comparing(data -> data.reference));
+        final Factory factory = type.getFactory();
+        final Names names = new Names(type.getQualifiedName(), sorted, (container, name) -> mayDeclare(factory, container, name));
+
+        sb.append(source, 0, importsAt).append('\n');
+        for (final ImportData data : sorted) {
+            sb.append(data.statement).append(System.lineSeparator());
+        }
+        sb.append('\n');
+        int copied = importsAt;
+        for (final int[] range : removed) {
+            if (range[0] >= copied) {
+                sb.append(source, copied, range[0]);
+                copied = range[1];
+            }
+        }
+
+        for (; i < tokens.size(); i++) {
+            final Token token = tokens.get(i);
+            if (token.getType() == TokenType.IDENTIFIER && !isAfterDot(source, tokens, i)) {
+                final List<String> segments = new ArrayList<>();
+                final int end = readQualifiedName(source, tokens, i, segments);
+                final String replacement = names.shorten(segments);
+                if (replacement != null) {
+                    sb.append(source, copied, token.getStart()).append(replacement);
+                    copied = tokens.get(end).getEnd();
+                }
+                i = end;
+            } else if (isBareClassLiteral(source, tokens, i)) {
+                // Spoon occasionally prints class literals of the current type without a name.
+                sb.append(source, copied, token.getStart()).append(type.getSimpleName());
+                copied = token.getStart();
+            }
+        }
+        return sb.append(source, copied, source.length()).toString();
+    }
+
+    private static int findSemicolon(final String source, final List<Token> tokens, final int start) {
+        for (int i = start; i < tokens.size(); i++) {
+            if (tokens.get(i).is(source, ";")) {
+                return i;
+            }
+        }
+        return tokens.size() - 1;
+    }
+
+    private static ImportData readImport(final String source, final List<Token> tokens, final int start, final int end) {
+        final boolean isStatic = start + 1 < end && tokens.get(start + 1).is(source, "static");
+        final StringBuilder path = new StringBuilder();
+        for (int i = isStatic ? start + 2 : start + 1; i < end; i++) {
+            path.append(tokens.get(i).getText(source));
+        }
+        return new ImportData(isStatic, path.toString());
+    }
+
+    private static int getLineStart(final String source, int i) {
+        while (i > 0 && source.charAt(i - 1) != '\n' && Character.isWhitespace(source.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+
+    private static int getLineEnd(final String source, int i) {
+        while (i < source.length() && source.charAt(i) != '\n') {
+            i++;
+        }
+        return Math.min(i + 1, source.length());
+    }
+
+    private static boolean isAfterDot(final String source, final List<Token> tokens, final int i) {
+        return i > 0 && tokens.get(i - 1).is(source, ".");
+    }
+
+    private static int readQualifiedName(final String source, final List<Token> tokens, final int start, final List<String> segments) {
+        segments.add(tokens.get(start).getText(source));
+        int i = start;
+        while (i + 2 < tokens.size() && isAdjacent(tokens, i) && tokens.get(i + 1).is(source, ".")
+                && isAdjacent(tokens, i + 1) && tokens.get(i + 2).getType() == TokenType.IDENTIFIER) {
+            segments.add(tokens.get(i + 2).getText(source));
+            i += 2;
+        }
+        return i;
+    }
+
+    private static boolean isAdjacent(final List<Token> tokens, final int i) {
+        return tokens.get(i).getEnd() == tokens.get(i + 1).getStart();
+    }
+
+    private static boolean isBareClassLiteral(final String source, final List<Token> tokens, final int i) {
+        final Token token = tokens.get(i);
+        if (!token.is(source, ".") || i + 1 >= tokens.size() || !tokens.get(i + 1).is(source, "class")) {
+            return false;
+        }
+        return token.getStart() == 0 || !Character.isJavaIdentifierPart(source.charAt(token.getStart() - 1));
+    }
+
+    /**
+     * Determines whether a type or package in the given model may declare a type
+     * with the given simple name. Containers which are not in the model are looked
+     * up at runtime, and are otherwise assumed to declare it, unless they are part of
+     * the Java platform.
+     */
+    private static boolean mayDeclare(final Factory factory, final String container, final String simpleName) {
+        final CtType<?> type = factory.Type().get(container);
+        if (type != null) {
+            return type.getNestedType(simpleName) != null;
+        }
+        final CtPackage pkg = factory.Package().get(container);
+        if (pkg != null) {
+            return pkg.getType(simpleName) != null;
+        }
+        final ClassLoader loader = ImportRewriter.class.getClassLoader();
+        try {
+            for (final Class<?> nested : Class.forName(container, false, loader).getClasses()) {
+                if (nested.getSimpleName().equals(simpleName)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (final ClassNotFoundException | LinkageError ignored) {
+            // Not a type, so it may be a package.
+        }
+        try {
+            Class.forName(container + "." + simpleName, false, loader);
+            return true;
+        } catch (final ClassNotFoundException | LinkageError ignored) {
+            return !container.startsWith(JAVA_PACKAGES);
+        }
+    }
+
+    /**
+     * The qualified names which may be shortened in the body of a single file. A name
+     * is only shortened when its simple name refers to the same type everywhere in
+     * the file, i.e. when it is not shadowed by a nested type, a single-type import,
+     * or a type in the same package, and no other on-demand import, including
+     * <code>java.lang</code>, may provide a type with the same name.
+     */
+    static class Names {
+        final Map<String, String> imports = new HashMap<>();
+        final Map<String, String> simpleNames = new HashMap<>();
+        final Set<String> packages = new HashSet<>();
+        final Set<String> onDemand = new HashSet<>();
+        final BiPredicate<String, String> mayDeclare;
+        final String qualifiedName;
+        final String simpleName;
+        final String pkg;
+
+        /**
+         * @param qualifiedName The name of the top-level type declared by the file.
+         * @param data The imports of the file.
+         * @param mayDeclare Determines whether a type or package, by its qualified name,
+         *                   may declare a type with the given simple name.
+         */
+        Names(final String qualifiedName, final List<ImportData> data, final BiPredicate<String, String> mayDeclare) {
+            for (final ImportData i : data) {
+                if (!i.wildcard) {
+                    this.imports.putIfAbsent(i.path, i.reference);
+                    if (!i.isStatic) {
+                        this.simpleNames.putIfAbsent(i.reference, i.path);
+                    }
+                } else if (!i.isStatic) {
+                    this.packages.add(i.path);
+                }
+                if (i.wildcard) {
+                    this.onDemand.add(i.path);
+                }
+            }
+            this.onDemand.add(JAVA_LANG);
+            this.mayDeclare = mayDeclare;
+            this.qualifiedName = qualifiedName;
+            final int index = qualifiedName.lastIndexOf('.');
+            this.simpleName = qualifiedName.substring(index + 1);
+            this.pkg = index < 0 ? "" : qualifiedName.substring(0, index);
+        }
+
+        /**
+         * @return The shortest valid form of the given name, or null if it may not
+         *         be shortened.
+         */
+        String shorten(final List<String> segments) {
+            if (segments.size() < 2) {
+                return null;
+            }
+            final String[] prefixes = new String[segments.size()];
+            final StringBuilder sb = new StringBuilder(segments.get(0));
+            prefixes[0] = sb.toString();
+            for (int i = 1; i < segments.size(); i++) {
+                prefixes[i] = sb.append('.').append(segments.get(i)).toString();
+            }
+            for (int i = segments.size() - 1; i >= 0; i--) {
+                final String reference = this.imports.get(prefixes[i]);
+                if (reference != null) {
+                    // Static imports name members, which are never shadowed by types.
+                    final boolean member = !prefixes[i].equals(this.simpleNames.get(reference));
+                    return member || this.isUnambiguous(prefixes[i]) ? join(reference, segments, i + 1) : null;
+                }
+            }
+            for (int i = segments.size() - 1; i > 0; i--) {
+                if (prefixes[i].equals(this.qualifiedName)) {
+                    return join(this.simpleName, segments, i + 1);
+                }
+            }
+            final int last = segments.size() - 1;
+            if (prefixes[last - 1].equals(this.pkg) || prefixes[last - 1].equals(JAVA_LANG)) {
+                return this.isUnambiguous(prefixes[last]) ? segments.get(last) : null;
+            }
+            for (int i = last - 1; i >= 0; i--) {
+                if (this.packages.contains(prefixes[i]) && Character.isUpperCase(segments.get(i + 1).charAt(0))) {
+                    return this.isUnambiguous(prefixes[i + 1]) ? join(segments.get(i + 1), segments, i + 2) : null;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Determines whether the simple name of the given type refers to that type
+         * everywhere in this file, given that it has been imported.
+         */
+        boolean isUnambiguous(final String type) {
+            final int index = type.lastIndexOf('.');
+            final String container = type.substring(0, index);
+            final String name = type.substring(index + 1);
+            if (type.equals(this.qualifiedName) || container.equals(this.qualifiedName)) {
+                return true;
+            } else if (name.equals(this.simpleName) || this.mayDeclare.test(this.qualifiedName, name)) {
+                return false;
+            }
+            final String imported = this.simpleNames.get(name);
+            if (imported != null) {
+                return imported.equals(type);
+            } else if (container.equals(this.pkg)) {
+                return true;
+            } else if (this.mayDeclare.test(this.pkg, name)) {
+                return false;
+            }
+            for (final String other : this.onDemand) {
+                if (!other.equals(container) && this.mayDeclare.test(other, name)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static String join(final String first, final List<String> segments, final int from) {
+            final StringBuilder sb = new StringBuilder(first);
+            for (int i = from; i < segments.size(); i++) {
+                sb.append('.').append(segments.get(i));
+            }
+            return sb.toString();
+        }
+    }
+
+    static class ImportData {
+        final String statement;
+        final String path;
+        final String reference;
+        final boolean isStatic;
+        final boolean wildcard;
+
+        ImportData(final boolean isStatic, final String name) {
+            this.statement = "import " + (isStatic ? "static " : "") + name + ";";
+            this.wildcard = name.endsWith(".*");
+            this.path = this.wildcard ? name.substring(0, name.length() - 2) : name;
+            this.reference = this.path.substring(this.path.lastIndexOf('.') + 1);
+            this.isStatic = isStatic;
+        }
+
+        /** Imports are unique by the name they make available. */
+        String getKey() {
+            return this.wildcard ? this.path + ".*" : this.reference;
+        }
+    }
+}
@@ -1,98 +1,88 @@
 package personthecat.overwritevalidator.processors;
 
 import personthecat.overwritevalidator.CtUtils;
-import personthecat.overwritevalidator.LauncherContext;
+import personthecat.overwritevalidator.MemberIndex;
+import personthecat.overwritevalidator.MemberSignature;
 import personthecat.overwritevalidator.annotations.InheritMissingMembers;
 import personthecat.overwritevalidator.annotations.PlatformMustInherit;
 import personthecat.overwritevalidator.annotations.PlatformMustOverwrite;
-import spoon.processing.AbstractProcessor;
-import spoon.reflect.declaration.CtAnnotation;
 import spoon.reflect.declaration.CtClass;
 import spoon.reflect.declaration.CtConstructor;
 import spoon.reflect.declaration.CtField;
 import spoon.reflect.declaration.CtMethod;
 import spoon.reflect.declaration.CtType;
 
-import java.util.Set;
-
-public class InheritMissingMembersProcessor extends AbstractProcessor<CtType<?>> {
+public class InheritMissingMembersProcessor implements OverwriteStage {
 
     private static final String GENERATOR_NAME = InheritMissingMembersProcessor.class.getSimpleName();
 
-    private final Set<CtType<?>> processed;
-
-    public InheritMissingMembersProcessor(final Set<CtType<?>> processed) {
-        this.processed = processed;
-    }
-
     @Override
-    public boolean isToBeProcessed(final CtType<?> type) {
-        return type.isTopLevel();
+    public boolean isToBeProcessed(final TypeContext ctx) {
+        return ctx.isAnnotated(InheritMissingMembers.class);
     }
 
     @Override
-    public void process(final CtType<?> type) {
-        if (type.isTopLevel()) {
-            final CtAnnotation<?> a = CtUtils.getAnnotation(type, InheritMissingMembers.class);
-            if (a != null) {
-                final CtType<?> overwritten = LauncherContext.getOverwrittenClassOrThrow(type);
-                this.inheritMembers(type, overwritten);
-                this.inheritNestedClasses(type, overwritten);
-                type.removeAnnotation(a);
-                this.processed.add(type);
-            }
-        }
+    public void process(final TypeContext ctx) {
+        final CtType<?> type = ctx.getType();
+        final CtType<?> overwritten = ctx.getOverwrittenClassOrThrow();
+        this.inheritMembers(ctx, type, overwritten);
+        this.inheritNestedClasses(type, overwritten);
+        ctx.removeAnnotation(type, ctx.getAnnotation(type, InheritMissingMembers.class));
     }
 
-    private void inheritMembers(final CtType<?> type, final CtType<?> overwritten) {
-        this.inheritMethods(type, overwritten);
-        this.inheritFields(type, overwritten);
-        this.inheritConstructors(type, overwritten);
-        this.inheritRecursive(type, overwritten);
+    private void inheritMembers(final TypeContext ctx, final CtType<?> type, final CtType<?> overwritten) {
+        final MemberIndex members = new MemberIndex(type, ctx.getHierarchy());
+        this.inheritMethods(ctx, type, members, overwritten);
+        this.inheritFields(ctx, type, members, overwritten);
+        this.inheritConstructors(ctx, type, members, overwritten);
+        this.inheritRecursive(ctx, type);
     }
 
-    private void inheritMethods(final CtType<?> type, final CtType<?> overwritten) {
+    private void inheritMethods(final TypeContext ctx, final CtType<?> type, final MemberIndex members,
+            final CtType<?> overwritten) {
         for (final CtMethod<?> method : overwritten.getMethods()) {
-            if (!CtUtils.hasAnnotation(type, method, PlatformMustOverwrite.class)) {
-                if (!CtUtils.classOverridesMethod(type, method)) {
+            if (!ctx.hasAnnotation(method, PlatformMustOverwrite.class)) {
+                if (!members.overrides(MemberSignature.of(method))) {
                     final CtMethod<?> cloned = method.clone();
-                    cloned.removeAnnotation(CtUtils.getAnnotation(type, method, PlatformMustInherit.class));
+                    cloned.removeAnnotation(ctx.getAnnotation(method, PlatformMustInherit.class));
                     type.addMethod(CtUtils.markGenerated(cloned, GENERATOR_NAME));
                 }
             }
         }
     }
 
-    private void inheritFields(final CtType<?> type, final CtType<?> overwritten) {
+    private void inheritFields(final TypeContext ctx, final CtType<?> type, final MemberIndex members,
+            final CtType<?> overwritten) {
         for (final CtField<?> field : overwritten.getFields()) {
-            if (!CtUtils.hasAnnotation(type, field, PlatformMustOverwrite.class)) {
-                if (!CtUtils.classOverridesField(type, field)) {
+            if (!ctx.hasAnnotation(field, PlatformMustOverwrite.class)) {
+                if (!members.overrides(MemberSignature.of(field))) {
                     final CtField<?> cloned = field.clone();
-                    cloned.removeAnnotation(CtUtils.getAnnotation(type, field, PlatformMustInherit.class));
-                    type.addField(CtUtils.markGenerated(field.clone(), GENERATOR_NAME));
+                    cloned.removeAnnotation(ctx.getAnnotation(field, PlatformMustInherit.class));
+                    type.addField(CtUtils.markGenerated(cloned, GENERATOR_NAME));
                 }
             }
         }
     }
 
     @SuppressWarnings("unchecked")
-    private void inheritConstructors(final CtType<?> type, final CtType<?> overwritten) {
+    private void inheritConstructors(final TypeContext ctx, final CtType<?> type, final MemberIndex members,
+            final CtType<?> overwritten) {
         for (final CtConstructor<?> constructor : CtUtils.getConstructors(overwritten)) {
-            if (!CtUtils.hasAnnotation(type, constructor, PlatformMustOverwrite.class)) {
-                if (!CtUtils.classOverridesConstructor(type, constructor)) {
+            if (!ctx.hasAnnotation(constructor, PlatformMustOverwrite.class)) {
+                if (!members.overrides(MemberSignature.of(constructor))) {
                     final CtConstructor<?> cloned = CtUtils.markGenerated(constructor.clone(), GENERATOR_NAME);
-                    cloned.removeAnnotation(CtUtils.getAnnotation(type, constructor, PlatformMustInherit.class));
+                    cloned.removeAnnotation(ctx.getAnnotation(constructor, PlatformMustInherit.class));
                     ((CtClass<Object>) type).addConstructor((CtConstructor<Object>) cloned);
                 }
             }
         }
     }
 
-    private void inheritRecursive(final CtType<?> type, final CtType<?> overwritten) {
+    private void inheritRecursive(final TypeContext ctx, final CtType<?> type) {
         for (final CtType<?> nested : type.getNestedTypes()) {
-            final CtType<?> replaced = overwritten.getNestedType(nested.getSimpleName());
+            final CtType<?> replaced = ctx.getCache().getOverwrittenClass(nested);
             if (replaced != null) {
-                this.inheritMembers(nested, replaced);
+                this.inheritMembers(ctx, nested, replaced);
             }
         }
     }
@@ -1,118 +1,109 @@
 package personthecat.overwritevalidator.processors;
 
 import personthecat.overwritevalidator.CtUtils;
-import personthecat.overwritevalidator.LauncherContext;
 import personthecat.overwritevalidator.annotations.Inherit;
 import personthecat.overwritevalidator.annotations.PlatformMustInherit;
 import personthecat.overwritevalidator.annotations.PlatformMustOverwrite;
-import spoon.processing.AbstractProcessor;
 import spoon.reflect.declaration.CtAnnotation;
 import spoon.reflect.declaration.CtConstructor;
+import spoon.reflect.declaration.CtExecutable;
 import spoon.reflect.declaration.CtField;
 import spoon.reflect.declaration.CtMethod;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.declaration.CtTypeMember;
 
 import javax.annotation.Nonnull;
-import java.util.Set;
 import java.util.Objects;
 
-public class InheritProcessor extends AbstractProcessor<CtType<?>> {
+public class InheritProcessor implements OverwriteStage {
 
     private static final String GENERATOR_NAME = InheritProcessor.class.getSimpleName();
 
-    private final Set<CtType<?>> processed;
-
-    public InheritProcessor(final Set<CtType<?>> processed) {
-        this.processed = processed;
-    }
-
     @Override
-    public boolean isToBeProcessed(final CtType<?> type) {
-        return type.isTopLevel();
+    public boolean isToBeProcessed(final TypeContext ctx) {
+        return ctx.anyMemberIsAnnotated(Inherit.class);
     }
 
     @Override
-    public void process(final CtType<?> type) {
-        if (CtUtils.anyMemberIsAnnotated(type, Inherit.class)) {
-            this.processMembers(type, LauncherContext.getOverwrittenClassOrThrow(type));
-            this.processed.add(type);
-        }
+    public void process(final TypeContext ctx) {
+        this.processMembers(ctx, ctx.getType(), ctx.getOverwrittenClassOrThrow());
     }
 
-    private void processMembers(final CtType<?> type, final CtType<?> overwritten) {
-        this.processMethods(type, overwritten);
-        this.processFields(type, overwritten);
-        this.processConstructors(type, overwritten);
-        this.processRecursive(type, overwritten);
+    private void processMembers(final TypeContext ctx, final CtType<?> type, final CtType<?> overwritten) {
+        this.processMethods(ctx, type, overwritten);
+        this.processFields(ctx, type, overwritten);
+        this.processConstructors(ctx, type, overwritten);
+        this.processRecursive(ctx, type);
     }
 
-    private void processMethods(final CtType<?> type, final CtType<?> overwritten) {
+    private void processMethods(final TypeContext ctx, final CtType<?> type, final CtType<?> overwritten) {
         for (final CtMethod<?> method : type.getMethods()) {
-            final CtAnnotation<?> a = CtUtils.getAnnotation(type, method, Inherit.class);
-            final CtMethod<?> inherited = CtUtils.getOverriddenMethod(overwritten, method);
+            final CtAnnotation<?> a = ctx.getAnnotation(method, Inherit.class);
+            final CtMethod<?> inherited = CtUtils.getOverriddenMethod(overwritten, method, ctx.getHierarchy());
             if (a != null) {
-                method.setBody(this.validateInherited(type, inherited).getBody());
-                method.setParameters(inherited.getParameters());
+                final CtExecutable<?> cloned = this.validateInherited(ctx, type, inherited).clone();
+                method.setBody(cloned.getBody());
+                method.setParameters(cloned.getParameters());
                 CtUtils.markGenerated(method, GENERATOR_NAME);
-                method.removeAnnotation(a);
+                ctx.removeAnnotation(method, a);
             } else if (inherited != null) {
-                this.validateOverwritten(type, inherited);
+                this.validateOverwritten(ctx, type, inherited);
             }
         }
     }
 
-    private void processFields(final CtType<?> type, final CtType<?> overwritten) {
+    private void processFields(final TypeContext ctx, final CtType<?> type, final CtType<?> overwritten) {
         for (final CtField<?> field : type.getFields()) {
-            final CtAnnotation<?> a = CtUtils.getAnnotation(type, field, Inherit.class);
+            final CtAnnotation<?> a = ctx.getAnnotation(field, Inherit.class);
             final CtField<?> inherited = overwritten.getField(field.getSimpleName());
             if (a != null) {
-                final CtField<?> cloned = this.validateInherited(type, inherited).clone();
+                final CtField<?> cloned = this.validateInherited(ctx, type, inherited).clone();
                 cloned.setAnnotations(field.getAnnotations());
                 cloned.removeAnnotation(a);
                 type.removeField(field);
                 type.addField(CtUtils.markGenerated(cloned, GENERATOR_NAME));
             } else if (inherited != null) {
-                this.validateOverwritten(type, inherited);
+                this.validateOverwritten(ctx, type, inherited);
             }
         }
     }
 
-    private void processConstructors(final CtType<?> type, final CtType<?> overwritten) {
+    private void processConstructors(final TypeContext ctx, final CtType<?> type, final CtType<?> overwritten) {
         for (final CtConstructor<?> constructor : CtUtils.getConstructors(type)) {
-            final CtAnnotation<?> a = CtUtils.getAnnotation(type, constructor, Inherit.class);
-            final CtConstructor<?> inherited = CtUtils.getOverriddenConstructor(overwritten, constructor);
+            final CtAnnotation<?> a = ctx.getAnnotation(constructor, Inherit.class);
+            final CtConstructor<?> inherited = CtUtils.getOverriddenConstructor(overwritten, constructor, ctx.getHierarchy());
             if (a != null) {
-                constructor.setBody(this.validateInherited(type, inherited).getBody());
-                constructor.setParameters(inherited.getParameters());
+                final CtExecutable<?> cloned = this.validateInherited(ctx, type, inherited).clone();
+                constructor.setBody(cloned.getBody());
+                constructor.setParameters(cloned.getParameters());
                 CtUtils.markGenerated(constructor, GENERATOR_NAME);
-                constructor.removeAnnotation(a);
+                ctx.removeAnnotation(constructor, a);
             } else if (inherited != null) {
-                this.validateOverwritten(type, inherited);
+                this.validateOverwritten(ctx, type, inherited);
             }
         }
     }
 
-    private void processRecursive(final CtType<?> type, final CtType<?> overwritten) {
+    private void processRecursive(final TypeContext ctx, final CtType<?> type) {
         for (final CtType<?> nested : type.getNestedTypes()) {
-            final CtType<?> replaced = overwritten.getNestedType(nested.getSimpleName());
+            final CtType<?> replaced = ctx.getCache().getOverwrittenClass(nested);
             if (replaced != null) {
-                this.processMembers(nested, replaced);
+                this.processMembers(ctx, nested, replaced);
             }
         }
     }
 
     @Nonnull
-    private <T extends CtTypeMember> T validateInherited(final CtType<?> type, final T member) {
+    private <T extends CtTypeMember> T validateInherited(final TypeContext ctx, final CtType<?> type, final T member) {
         Objects.requireNonNull(member, "No overwrite target for member: " + member.getSimpleName());
-        if (CtUtils.hasAnnotation(type, member, PlatformMustOverwrite.class)) {
+        if (ctx.hasAnnotation(member, PlatformMustOverwrite.class)) {
             throw new IllegalOverwriteException(type, member);
         }
         return member;
     }
 
-    private void validateOverwritten(final CtType<?> type, final CtTypeMember member) {
-        if (CtUtils.hasAnnotation(type, member, PlatformMustInherit.class)) {
+    private void validateOverwritten(final TypeContext ctx, final CtType<?> type, final CtTypeMember member) {
+        if (ctx.hasAnnotation(member, PlatformMustInherit.class)) {
             throw new MissingInheritException(type, member);
         }
     }
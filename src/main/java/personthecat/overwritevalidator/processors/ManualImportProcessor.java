@@ -1,176 +1,122 @@
 package personthecat.overwritevalidator.processors;
 
-import org.gradle.api.Project;
 import personthecat.overwritevalidator.CtUtils;
+import personthecat.overwritevalidator.IoExecutor;
 import personthecat.overwritevalidator.LauncherContext;
+import personthecat.overwritevalidator.OutputSync;
+import personthecat.overwritevalidator.PlatformSettings;
+import personthecat.overwritevalidator.TypeSignature;
+import personthecat.overwritevalidator.processors.ImportRewriter.ImportData;
 import spoon.Launcher;
+import spoon.reflect.declaration.CtCompilationUnit;
 import spoon.reflect.declaration.CtType;
 
 import java.io.File;
-import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 
 public class ManualImportProcessor {
 
-    /** Representing all possible imports in a Java source file.. */
-    private static final Pattern IMPORT_PATTERN = Pattern.compile("^\\s*import\\s+(?:static\\s+)?(.*\\.(\\w+)).*;.*$");
-
-    /** Representing the package declaration at the top of the file. */
-    private static final Pattern PACKAGE_PATTERN = Pattern.compile("^\\s*package.*$", Pattern.MULTILINE);
-
     /**
-     * This method is responsible for correcting a series of import-related errors
-     * that will occur when serializing files through Spoon.
+     * Writes every type accepted by the filter to the output directory. This is
+     * responsible for correcting a series of import-related errors that will occur
+     * when serializing files through Spoon.
      * <p>
      *   Namely, collapsed imports, static imports, and nested type imports, which
-     *   are all misprinted by the library.
+     *   are all misprinted by the library. Generated types are printed and repaired
+     *   in memory so that each file is written exactly once. Every other type is
+     *   copied from its original source. Files which are already up to date are
+     *   not written at all.
+     * </p>
+     * <p>
+     *   Files are printed one compilation unit at a time, as Spoon may update the
+     *   model while printing. A file is generated if any of its types was processed,
+     *   so that every other type declared beside it is printed along with it.
+     *   Repairing their imports and writing or copying the files is then done on a
+     *   bounded number of threads.
      * </p>
      *
-     * @param project The current project which the plugin has been applied to.
-     * @param launcher The context storing the parsed AST of this project.
+     * @param settings The platform being processed.
+     * @param cache The data of the common project being overwritten.
+     * @param launcher The context storing the processed AST of this project.
+     * @param output The output directory to which the sources will be written.
+     * @param processed Every type which was modified by the code generator.
+     * @param filter Determines which types will be written to the output.
      */
-    public static void fixImports(final Project project, final Launcher launcher) {
-        final Set<File> javaSources = LauncherContext.getMainSourceSet(project);
+    public static void writeSources(final PlatformSettings settings, final LauncherContext.Cache cache, final Launcher launcher,
+            final OutputSync output, final Set<CtType<?>> processed, final Predicate<CtType<?>> filter) {
+        final Set<File> javaSources = settings.getSources();
         final File generatedSources = launcher.getEnvironment().getSourceOutputDirectory();
+        final Map<File, List<CtType<?>>> files = new LinkedHashMap<>();
         for (final CtType<?> type : CtUtils.getAllClasses(launcher.getModel())) {
-            final CtType<?> overwritten = LauncherContext.getOverwrittenClass(type);
-            final File typeFile = type.getPosition().getFile();
-            final File generated = new File(generatedSources, getRelativePath(javaSources, typeFile));
-            if (overwritten != null && generated.exists()) {
-                fixClassFile(type, generated, overwritten.getPosition().getFile());
-            } else {
-                copyFile(typeFile, generated);
+            if (filter.test(type)) {
+                files.computeIfAbsent(type.getPosition().getFile(), f -> new ArrayList<>()).add(type);
             }
         }
-    }
-
-    private static String getRelativePath(final Set<File> sources, final File f) {
-        final String filePath = f.getPath();
-        for (final File source : sources) {
-            final String sourcePath = source.getPath();
-            if (filePath.startsWith(sourcePath)) {
-                return filePath.substring(sourcePath.length());
+        final List<Runnable> tasks = new ArrayList<>();
+        for (final Map.Entry<File, List<CtType<?>>> entry : files.entrySet()) {
+            final File typeFile = entry.getKey();
+            final List<CtType<?>> types = entry.getValue();
+            final File generated = new File(generatedSources, getRelativePath(javaSources, typeFile));
+            if (types.stream().anyMatch(processed::contains)) {
+                final CtCompilationUnit unit = types.get(0).getPosition().getCompilationUnit();
+                final String printed = launcher.getEnvironment().createPrettyPrinter().printCompilationUnit(unit);
+                final CtType<?> primary = getPrimaryType(typeFile, types);
+                final List<TypeSignature> overwritten = new ArrayList<>();
+                for (final CtType<?> type : types) {
+                    final TypeSignature signature = cache.getOverwrittenSignature(type);
+                    if (signature != null && signature.getFile() != null) {
+                        overwritten.add(signature);
+                    }
+                }
+                tasks.add(() -> output.write(generated, fixImports(primary, printed, overwritten)));
+            } else {
+                tasks.add(() -> output.copy(typeFile, generated));
             }
         }
-        throw new IllegalStateException("No matching source: " + filePath);
-    }
-
-    private static void fixClassFile(final CtType<?> type, final File generated, final File common) {
-        final List<String> lines = readLines(generated);
-        final Set<ImportData> generatedImports = getImports(lines);
-        final String content = removeImports(generatedImports, String.join("\n", lines));
-
-        final Set<ImportData> commonImports = getImports(readLines(common));
-        commonImports.addAll(generatedImports);
-
-        final List<ImportData> imports = new ArrayList<>(commonImports);
-        imports.sort(Comparator.comparing(i -> i.reference));
-
-        writeFile(generated, addImports(imports, removePaths(type, imports, content)));
-    }
-
-    private static List<String> readLines(final File f) {
-        try {
-            return Files.readAllLines(f.toPath());
-        } catch (final IOException e) {
-            throw new UncheckedIOException("Fixing imports", e);
-        }
+        IoExecutor.runAll(tasks, settings.getOutputThreads());
     }
 
-    private static Set<ImportData> getImports(final List<String> lines) {
-        final Set<ImportData> imports = new HashSet<>();
-        for (final String line : lines) {
-            final Matcher m = IMPORT_PATTERN.matcher(line);
-            if (m.matches()) {
-                imports.add(new ImportData(m.group(0), m.group(1), m.group(2)));
+    /** The type named after its file, or else the first type declared in it. */
+    private static CtType<?> getPrimaryType(final File file, final List<CtType<?>> types) {
+        final String name = file.getName();
+        final String simpleName = name.endsWith(".java") ? name.substring(0, name.length() - 5) : name;
+        for (final CtType<?> type : types) {
+            if (simpleName.equals(type.getSimpleName())) {
+                return type;
             }
         }
-        return imports;
-    }
-
-    private static String removeImports(final Set<ImportData> data, String content) {
-        for (final ImportData i : data) {
-            content = content.replaceAll(i.statement + ".*\n", "");
-        }
-        return content;
+        return types.get(0);
     }
 
-    private static String removePaths(final CtType<?> type, final Collection<ImportData> data, String content) {
-        for (final ImportData i : data) {
-            content = content.replaceAll("(?<!import\\s(?:static\\s)?)" + i.path + "(?!\\w)", i.reference);
-        }
-        return content.replaceAll("(?<!import\\s(?:static\\s)?)" + type.getPackage().getQualifiedName() + "(?:"+ type.getSimpleName() + ")?\\.(?!\\w+\\.)", "")
-            .replace(type.getQualifiedName(), type.getSimpleName())
-            .replaceAll("(?<!import\\s(?:static\\s)?)java\\.lang\\.(?!\\w+\\.)", "")
-            .replaceAll("(?<!\\w)\\.class", type.getSimpleName() + ".class");
-    }
-
-    private static String addImports(final Collection<ImportData> data, final String content) {
-        final int index = getPackageIndex(content) + 1;
-        final StringBuilder sb = new StringBuilder(content.substring(0, index)).append('\n');
-
-        for (final ImportData i : data) {
-            sb.append(i.statement);
-            sb.append(System.lineSeparator());
-        }
-        return sb.append('\n').append(content.substring(index)).toString();
-    }
-
-    private static int getPackageIndex(final String content) {
-        final Matcher matcher = PACKAGE_PATTERN.matcher(content);
-        if (!matcher.find()) {
-            throw new IllegalStateException("No package declaration in Java file.");
-        }
-        return matcher.end();
-    }
-
-    private static void writeFile(final File f, final String content) {
-        try {
-            Files.write(f.toPath(), content.getBytes(StandardCharsets.UTF_8));
-        } catch (final IOException e) {
-            throw new UncheckedIOException("Fixing imports", e);
-        }
-    }
-
-    private static void copyFile(final File source, final File destination) {
-        final File parent = destination.getParentFile();
-        if (!(parent.exists() || parent.mkdirs())) {
-            throw new IllegalStateException("Creating folder");
+    /**
+     * Rewrites the imports of a printed file. The imports of each common counterpart
+     * were recorded when its signature was loaded, so the common files are not read.
+     */
+    private static byte[] fixImports(final CtType<?> primary, final String printed, final List<TypeSignature> overwritten) {
+        if (overwritten.isEmpty()) {
+            return printed.getBytes(StandardCharsets.UTF_8);
         }
-        try {
-            Files.copy(source.toPath(), destination.toPath());
-        } catch (final IOException e) {
-            throw new UncheckedIOException("Copying file", e);
+        final List<ImportData> commonImports = new ArrayList<>();
+        for (final TypeSignature signature : overwritten) {
+            commonImports.addAll(ImportRewriter.readImports(signature));
         }
+        return ImportRewriter.rewrite(primary, printed, commonImports).getBytes(StandardCharsets.UTF_8);
     }
 
-    private static class ImportData {
-        final String statement;
-        final String path;
-        final String reference;
-
-        ImportData(final String statement, final String path, final String reference) {
-            this.statement = statement;
-            this.path = path;
-            this.reference = reference;
-        }
-
-        @Override
-        public boolean equals(final Object o) {
-            if (!(o instanceof ImportData)) {
-                return false;
+    private static String getRelativePath(final Set<File> sources, final File f) {
+        final String filePath = f.getPath();
+        for (final File source : sources) {
+            final String sourcePath = source.getPath();
+            if (filePath.startsWith(sourcePath)) {
+                return filePath.substring(sourcePath.length());
             }
-            return this.reference.equals(((ImportData) o).reference);
-        }
-
-        @Override
-        public int hashCode() {
-            return this.reference.hashCode();
         }
+        throw new IllegalStateException("No matching source: " + filePath);
     }
 }
@@ -1,146 +1,296 @@
 package personthecat.overwritevalidator.processors;
 
-import org.gradle.api.Project;
 import personthecat.overwritevalidator.CtUtils;
 import personthecat.overwritevalidator.LauncherContext;
-import spoon.reflect.CtModel;
-import spoon.reflect.declaration.CtField;
+import personthecat.overwritevalidator.MemberIndex;
+import personthecat.overwritevalidator.MemberSignature;
+import personthecat.overwritevalidator.Metrics;
+import personthecat.overwritevalidator.PlatformSettings;
+import personthecat.overwritevalidator.TypeHierarchy;
+import personthecat.overwritevalidator.TypeSignature;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.declaration.CtTypeMember;
 
+import javax.annotation.Nullable;
+import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MissingOverwriteProcessor {
 
-    /** The header message for missing overrides. */
-    private static final String MISSING_MEMBERS = "Missing members";
-
-    /** The header message for unreachable overrides. */
-    private static final String UNREACHABLE_MEMBERS = "Unreachable members";
-
-    /** The header message when an overwrite has lower access. */
-    private static final String LOWER_ACCESS = "More restrictive access";
-
-    /** The header message when an overwrite has a different type of access. */
-    private static final String DIFFERENT_TYPE = "Static or instance mismatch";
+    public static void processTypes(final PlatformSettings settings, final LauncherContext.Cache cache, final List<CtType<?>> types) {
+        final int maxErrors = settings.getMaxErrors();
+        report(settings.getName(), validateAll(cache, types, settings.getValidationThreads(), maxErrors), maxErrors);
+    }
 
-    public static void processModel(final Project project, final CtModel model) {
-        final ValidationContext ctx = validateAll(project, CtUtils.getAllClasses(model));
+    public static void report(final String platform, final ValidationContext ctx, final int maxErrors) {
         if (ctx.anyErrors()) {
-            ctx.printErrors();
-            throw new InvalidOverwritesException(project);
+            ctx.printErrors(platform, maxErrors);
+            throw new InvalidOverwritesException(platform);
+        }
+    }
+
+    /**
+     * Validates every class in the given list against its counterpart in the common
+     * project. Each class is validated independently into its own context and the
+     * results are merged in order of their qualified names, which keeps the report
+     * identical regardless of how many threads were used.
+     * <p>
+     *   Spoon may modify the platform model while resolving its types, so every type
+     *   which may be compared is resolved into a {@link TypeHierarchy} on the calling
+     *   thread first. The classes are then validated against the frozen hierarchy,
+     *   which never touches the model, so the workers do not need to be synchronized.
+     * </p>
+     * <p>
+     *   Once <code>maxErrors</code> have been found, any class which has not started
+     *   validating is skipped. When validating on multiple threads, which of the
+     *   remaining classes get skipped may vary between builds.
+     * </p>
+     *
+     * @param cache The data of the common project being overwritten.
+     * @param classes Every top-level class in the platform model.
+     * @param threads The maximum number of worker threads to validate with.
+     * @param maxErrors The number of errors after which validation stops.
+     * @return The merged results for every class.
+     */
+    public static ValidationContext validateAll(final LauncherContext.Cache cache, final List<CtType<?>> classes, final int threads,
+            final int maxErrors) {
+        final List<CtType<?>> sorted = new ArrayList<>(classes);
+        sorted.sort(Comparator.comparing(CtType::getQualifiedName));
+        final ValidationContext ctx = new ValidationContext();
+        if (sorted.isEmpty()) {
+            return ctx;
+        }
+        final ExecutorService executor = threads > 1 && sorted.size() > 1
+            ? Executors.newFixedThreadPool(Math.min(threads, sorted.size())) : null;
+        try {
+            final List<Callable<TypeSignature>> lookups = new ArrayList<>();
+            for (final CtType<?> ctClass : sorted) {
+                lookups.add(() -> cache.getOverwrittenSignature(ctClass));
+            }
+            final List<TypeSignature> signatures = invokeAll(executor, lookups);
+            final TypeHierarchy hierarchy = new TypeHierarchy(sorted.get(0).getFactory());
+            final List<Callable<ValidationContext>> validations = new ArrayList<>();
+            final AtomicInteger errors = new AtomicInteger();
+            for (int i = 0; i < sorted.size(); i++) {
+                final CtType<?> ctClass = sorted.get(i);
+                final TypeSignature overwritten = signatures.get(i);
+                if (overwritten != null) {
+                    final MemberIndex members = new MemberIndex(ctClass, hierarchy);
+                    members.resolve(overwritten);
+                    validations.add(() -> validate(ctClass, members, overwritten, errors, maxErrors));
+                }
+            }
+            hierarchy.freeze();
+            for (final ValidationContext result : invokeAll(executor, validations)) {
+                ctx.addAll(result);
+            }
+            return ctx;
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
         }
     }
 
-    static ValidationContext validateAll(final Project project, final List<CtType<?>> classes) {
-        final ValidationContext ctx = new ValidationContext(project);
-        for (final CtType<?> ctClass : classes) {
-            final CtType<?> overwritten = LauncherContext.getOverwrittenClass(ctClass);
-            if (overwritten != null) {
-                putMissingOverrides(ctx.missing, ctClass, overwritten);
-                putUnreachableConstants(ctx.unreachable, ctClass, overwritten);
-                putDifferentAccess(ctx, ctClass, overwritten);
+    /** Runs every task on the given executor, or on this thread if there is none. */
+    private static <T> List<T> invokeAll(@Nullable final ExecutorService executor, final List<Callable<T>> tasks) {
+        final List<T> results = new ArrayList<>();
+        try {
+            if (executor == null) {
+                for (final Callable<T> task : tasks) {
+                    results.add(task.call());
+                }
+                return results;
             }
+            final List<Future<T>> futures = new ArrayList<>();
+            for (final Callable<T> task : tasks) {
+                futures.add(executor.submit(Metrics.wrap(task)));
+            }
+            for (final Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while validating overwrites", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Error validating overwrites", e.getCause());
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new IllegalStateException("Error validating overwrites", e);
+        }
+    }
+
+    static ValidationContext validate(final CtType<?> ctClass, final MemberIndex members, final TypeSignature overwritten,
+            final AtomicInteger errors, final int maxErrors) {
+        final ValidationContext ctx = new ValidationContext();
+        if (errors.get() >= maxErrors) {
+            return ctx;
         }
+        putMissingOverrides(ctx, ctClass, members, overwritten);
+        putUnreachableConstants(ctx, ctClass, members, overwritten);
+        putDifferentAccess(ctx, ctClass, members, overwritten);
+        errors.addAndGet(ctx.violations.size());
         return ctx;
     }
 
-    static void putMissingOverrides(final MemberMap missing, final CtType<?> type, final CtType<?> overwritten) {
-        final String relativeName = getRelativeName(type);
-        for (final CtTypeMember member : CtUtils.getPublicMembers(overwritten)) {
-            if (!CtUtils.classOverridesMember(type, member)) {
-                missing.add(type.getQualifiedName(), CtUtils.formatMember(relativeName, member));
+    static void putMissingOverrides(final ValidationContext ctx, final CtType<?> type, final MemberIndex members, final TypeSignature overwritten) {
+        for (final MemberSignature member : CtUtils.getPublicMembers(overwritten)) {
+            if (!members.overrides(member)) {
+                ctx.add(type, member, Kind.MISSING);
             }
         }
     }
 
-    static void putUnreachableConstants(final MemberMap unreachable, final CtType<?> type, final CtType<?> overwritten) {
-        final String relativeName = getRelativeName(type);
-        for (final CtField<?> field : CtUtils.getPublicConstants(overwritten)) {
-            if (CtUtils.classOverridesField(type, field)) {
-                unreachable.add(type.getQualifiedName(), CtUtils.formatField(relativeName, field));
+    static void putUnreachableConstants(final ValidationContext ctx, final CtType<?> type, final MemberIndex members, final TypeSignature overwritten) {
+        for (final MemberSignature field : CtUtils.getPublicConstants(overwritten)) {
+            if (members.overridesField(field)) {
+                ctx.add(type, field, Kind.UNREACHABLE);
             }
         }
     }
 
-    static void putDifferentAccess(final ValidationContext ctx, final CtType<?> type, final CtType<?> overwritten) {
-        final String relativeName = getRelativeName(type);
-        for (final CtTypeMember member : overwritten.getTypeMembers()) {
-            final CtTypeMember child = CtUtils.getOverriddenMember(type, member);
+    static void putDifferentAccess(final ValidationContext ctx, final CtType<?> type, final MemberIndex members, final TypeSignature overwritten) {
+        for (final MemberSignature member : overwritten.getMembers()) {
+            final CtTypeMember child = members.getOverride(member);
 
             if (child != null) {
                 if (CtUtils.hasMoreRestrictiveAccess(child, member)) {
-                    ctx.lowerAccess.add(type.getQualifiedName(), CtUtils.formatMember(relativeName, member));
+                    ctx.add(type, member, Kind.LOWER_ACCESS);
                 }
                 if (CtUtils.hasDifferentAccessType(child, member)) {
-                    ctx.differentType.add(type.getQualifiedName(), CtUtils.formatMember(relativeName, member));
+                    ctx.add(type, member, Kind.DIFFERENT_TYPE);
                 }
             }
         }
     }
 
-    static String getRelativeName(final CtType<?> ctClass) {
-        return ctClass.getQualifiedName().substring(ctClass.getPackage().getQualifiedName().length() + 1);
+    /** The kinds of validation error, in the order they are reported. */
+    enum Kind {
+        MISSING("Missing members"),
+        UNREACHABLE("Unreachable members"),
+        LOWER_ACCESS("More restrictive access"),
+        DIFFERENT_TYPE("Static or instance mismatch");
+
+        /** The header message for this kind of error. */
+        final String head;
+
+        Kind(final String head) {
+            this.head = head;
+        }
     }
 
-    private static class MemberMap extends HashMap<String, List<String>> {
-        void add(final String qualifiedClass, final String formattedMember) {
-            final List<String> members = this.computeIfAbsent(qualifiedClass, k -> new ArrayList<>());
-            members.add(formattedMember);
+    /**
+     * A single validation error. The member is only formatted when the error gets
+     * printed, since a badly outdated platform may produce thousands of these.
+     */
+    private static class Violation implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final String type;
+        final int packageLength;
+        final MemberSignature member;
+        final Kind kind;
+
+        Violation(final String type, final int packageLength, final MemberSignature member, final Kind kind) {
+            this.type = type;
+            this.packageLength = packageLength;
+            this.member = member;
+            this.kind = kind;
+        }
+
+        String format() {
+            final String relativeName = this.packageLength > 0 ? this.type.substring(this.packageLength + 1) : this.type;
+            return CtUtils.formatMember(relativeName, this.member);
         }
     }
 
-    private static class ValidationContext {
-        final MemberMap missing = new MemberMap();
-        final MemberMap unreachable = new MemberMap();
-        final MemberMap lowerAccess = new MemberMap();
-        final MemberMap differentType = new MemberMap();
-        final Project project;
+    /**
+     * Contains every validation error reported for a set of classes. These results may
+     * be persisted between builds so that unchanged classes do not need to be validated
+     * again.
+     */
+    public static class ValidationContext implements Serializable {
+        private static final long serialVersionUID = 2L;
 
-        ValidationContext(final Project project) {
-            this.project = project;
+        final List<Violation> violations = new ArrayList<>();
+
+        void add(final CtType<?> type, final MemberSignature member, final Kind kind) {
+            final int packageLength = type.getPackage().getQualifiedName().length();
+            this.violations.add(new Violation(type.getQualifiedName(), packageLength, member, kind));
         }
 
-        boolean anyErrors() {
-            return !(missing.isEmpty() && unreachable.isEmpty() && lowerAccess.isEmpty() && differentType.isEmpty());
+        public boolean anyErrors() {
+            return !this.violations.isEmpty();
         }
 
-        void printErrors() {
-            if (!this.missing.isEmpty()) {
-                System.err.println(createRedText(this.formatInvalidMembers(MISSING_MEMBERS, this.missing)));
-            }
-            if (!this.unreachable.isEmpty()) {
-                System.err.println(createRedText(this.formatInvalidMembers(UNREACHABLE_MEMBERS, this.unreachable)));
+        public void addAll(final ValidationContext other) {
+            this.violations.addAll(other.violations);
+        }
+
+        public ValidationContext subset(final Set<String> classes) {
+            final ValidationContext subset = new ValidationContext();
+            for (final Violation violation : this.violations) {
+                if (classes.contains(violation.type)) {
+                    subset.violations.add(violation);
+                }
             }
-            if (!this.lowerAccess.isEmpty()) {
-                System.err.println(createRedText(this.formatInvalidMembers(LOWER_ACCESS, this.lowerAccess)));
+            return subset;
+        }
+
+        void printErrors(final String platform, final int maxErrors) {
+            final List<Violation> printed = this.violations.size() > maxErrors
+                ? this.violations.subList(0, maxErrors) : this.violations;
+            for (final Kind kind : Kind.values()) {
+                final Map<String, List<Violation>> byClass = new TreeMap<>();
+                for (final Violation violation : printed) {
+                    if (violation.kind == kind) {
+                        byClass.computeIfAbsent(violation.type, k -> new ArrayList<>()).add(violation);
+                    }
+                }
+                if (!byClass.isEmpty()) {
+                    System.err.println(createRedText(this.formatInvalidMembers(platform, kind.head, byClass)));
+                }
             }
-            if (!this.differentType.isEmpty()) {
-                System.err.println(createRedText(this.formatInvalidMembers(DIFFERENT_TYPE, this.differentType)));
+            if (this.violations.size() >= maxErrors) {
+                System.err.println(createRedText("\nReached the limit of " + maxErrors + " errors in '" + platform
+                    + "'. Some errors may not be shown."));
             }
         }
 
-        String formatInvalidMembers(final String head, final Map<String, List<String>> missing) {
+        String formatInvalidMembers(final String platform, final String head, final Map<String, List<Violation>> invalid) {
             final StringBuilder sb = new StringBuilder();
-            for (final Map.Entry<String, List<String>> entry : missing.entrySet()) {
-                sb.append(buildInvalidMemberMessage(head, entry.getKey(), entry.getValue()));
+            for (final Map.Entry<String, List<Violation>> entry : invalid.entrySet()) {
+                sb.append(buildInvalidMemberMessage(platform, head, entry.getKey(), entry.getValue()));
             }
             return sb.substring(0, sb.length() - 1);
         }
 
-        String buildInvalidMemberMessage(final String head, final String className, final List<String> invalid) {
+        String buildInvalidMemberMessage(final String platform, final String head, final String className, final List<Violation> invalid) {
             final StringBuilder msg = new StringBuilder("\n")
                 .append(head)
                 .append(" in '")
-                .append(this.project.getName())
+                .append(platform)
                 .append("' @ ")
                 .append(className)
                 .append('\n');
-            for (final String member : invalid) {
-                msg.append(" * ").append(member).append('\n');
+            for (final Violation violation : invalid) {
+                msg.append(" * ").append(violation.format()).append('\n');
             }
             return msg.toString();
         }
@@ -151,8 +301,8 @@ public class MissingOverwriteProcessor {
     }
 
     private static class InvalidOverwritesException extends IllegalStateException {
-        InvalidOverwritesException(final Project project) {
-            super("Project '" + project.getName() + "' contains invalid overwrites");
+        InvalidOverwritesException(final String platform) {
+            super("Project '" + platform + "' contains invalid overwrites");
         }
     }
 }
@@ -0,0 +1,74 @@
+package personthecat.overwritevalidator.processors;
+
+import personthecat.overwritevalidator.LauncherContext;
+import personthecat.overwritevalidator.TypeHierarchy;
+import spoon.processing.AbstractProcessor;
+import spoon.reflect.declaration.CtType;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs every code generating stage in a single traversal of the model. Each top-level
+ * type is visited once and given a shared {@link TypeContext}, which is then passed
+ * to each stage in the order they were added. Every context shares the supertypes
+ * resolved in the model being processed.
+ */
+public class OverwritePipeline extends AbstractProcessor<CtType<?>> {
+
+    private final LauncherContext.Cache cache;
+    private final Set<CtType<?>> processed;
+    private final List<OverwriteStage> stages = new ArrayList<>();
+    @Nullable private TypeHierarchy hierarchy;
+
+    public OverwritePipeline(final LauncherContext.Cache cache, final Set<CtType<?>> processed) {
+        this.cache = cache;
+        this.processed = processed;
+    }
+
+    /**
+     * Creates a pipeline containing each of the standard code generating stages.
+     *
+     * @param cache The data of the common project being overwritten.
+     * @param processed Receives every type which any stage has generated code for.
+     * @return A new pipeline which is ready to be added to a launcher.
+     */
+    public static OverwritePipeline createDefault(final LauncherContext.Cache cache, final Set<CtType<?>> processed) {
+        return new OverwritePipeline(cache, processed)
+            .addStage(new InheritProcessor())
+            .addStage(new InheritMissingMembersProcessor())
+            .addStage(new OverwriteClassProcessor())
+            .addStage(new OverwriteProcessor());
+    }
+
+    public OverwritePipeline addStage(final OverwriteStage stage) {
+        this.stages.add(stage);
+        return this;
+    }
+
+    public List<OverwriteStage> getStages() {
+        return Collections.unmodifiableList(this.stages);
+    }
+
+    @Override
+    public boolean isToBeProcessed(final CtType<?> type) {
+        return type.isTopLevel();
+    }
+
+    @Override
+    public void process(final CtType<?> type) {
+        if (this.hierarchy == null) {
+            this.hierarchy = new TypeHierarchy(type.getFactory());
+        }
+        final TypeContext ctx = new TypeContext(this.cache, type, this.hierarchy);
+        for (final OverwriteStage stage : this.stages) {
+            if (stage.isToBeProcessed(ctx)) {
+                stage.process(ctx);
+                this.processed.add(type);
+            }
+        }
+    }
+}
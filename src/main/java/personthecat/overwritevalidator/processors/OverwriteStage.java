@@ -0,0 +1,26 @@
+package personthecat.overwritevalidator.processors;
+
+/**
+ * A single step of code generation which is run by the {@link OverwritePipeline}.
+ * Every stage receives the same {@link TypeContext} for a type, so its common
+ * counterpart and annotations are only resolved once regardless of how many
+ * stages are interested in it.
+ */
+public interface OverwriteStage {
+
+    /**
+     * Determines whether this stage has any work to do for the given type.
+     *
+     * @param ctx The context of the top-level type being visited.
+     * @return <code>true</code>, if {@link #process} should be called.
+     */
+    boolean isToBeProcessed(TypeContext ctx);
+
+    /**
+     * Generates code for the given type. Any stage which runs on a type causes that
+     * type to be written to the output.
+     *
+     * @param ctx The context of the top-level type being visited.
+     */
+    void process(TypeContext ctx);
+}
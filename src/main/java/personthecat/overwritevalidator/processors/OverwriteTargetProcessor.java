@@ -2,52 +2,55 @@ package personthecat.overwritevalidator.processors;
 
 import personthecat.overwritevalidator.CtUtils;
 import personthecat.overwritevalidator.LauncherContext;
+import personthecat.overwritevalidator.TypeSignature;
 import personthecat.overwritevalidator.annotations.OverwriteTarget;
-import spoon.reflect.CtModel;
 import spoon.reflect.declaration.CtAnnotation;
 import spoon.reflect.declaration.CtType;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class OverwriteTargetProcessor {
 
-    public static List<CtType<?>> getOverwriteTargets(final List<CtType<?>> classes) {
-        final List<CtType<?>> targets = new ArrayList<>();
-        for (final CtType<?> target : classes) {
-            final CtAnnotation<?> a = CtUtils.getAnnotation(target, OverwriteTarget.class);
-            if (a != null && (boolean) a.getValueAsObject("required")) {
+    public static boolean isRequiredTarget(final CtType<?> type) {
+        final CtAnnotation<?> a = CtUtils.getAnnotation(type, OverwriteTarget.class);
+        return a != null && (boolean) a.getValueAsObject("required");
+    }
+
+    public static List<TypeSignature> getOverwriteTargets(final List<TypeSignature> classes) {
+        final List<TypeSignature> targets = new ArrayList<>();
+        for (final TypeSignature target : classes) {
+            if (target.isRequiredTarget()) {
                 targets.add(target);
-                target.removeAnnotation(a);
             }
         }
         return targets;
     }
 
-    public static void processModel(final CtModel model) {
-        final List<CtType<?>> targets = LauncherContext.getOverwriteTargets();
-        if (targets.isEmpty()) {
-            return;
+    public static void processTypes(final LauncherContext.Cache cache, final List<CtType<?>> types) {
+        final Set<String> overwrites = new HashSet<>();
+        for (final CtType<?> overwrite : types) {
+            overwrites.add(overwrite.getQualifiedName());
         }
-        final List<CtType<?>> overwrites = CtUtils.getAllClasses(model);
-        for (final CtType<?> target : targets) {
+        validateTargets(cache, overwrites);
+    }
+
+    public static void validateTargets(final LauncherContext.Cache cache, final Set<String> overwrites) {
+        for (final TypeSignature target : cache.getOverwriteTargets()) {
             if (!projectOverwritesClass(overwrites, target)) {
                 throw new MissingOverwriteException(target);
             }
         }
     }
 
-    private static boolean projectOverwritesClass(final List<CtType<?>> overwrites, final CtType<?> target) {
-        for (final CtType<?> overwrite : overwrites) {
-            if (overwrite.getQualifiedName().equals(target.getQualifiedName())) {
-                return true;
-            }
-        }
-        return false;
+    private static boolean projectOverwritesClass(final Set<String> overwrites, final TypeSignature target) {
+        return overwrites.contains(target.getQualifiedName());
     }
 
     private static class MissingOverwriteException extends IllegalStateException {
-        MissingOverwriteException(final CtType<?> type) {
+        MissingOverwriteException(final TypeSignature type) {
             super("Project does not overwrite " + type.getSimpleName());
         }
     }
@@ -0,0 +1,94 @@
+package personthecat.overwritevalidator.processors;
+
+import personthecat.overwritevalidator.AnnotationIndex;
+import personthecat.overwritevalidator.LauncherContext;
+import personthecat.overwritevalidator.TypeHierarchy;
+import spoon.reflect.declaration.CtAnnotation;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.annotation.Annotation;
+
+/**
+ * Everything the {@link OverwritePipeline} knows about a single top-level type.
+ * The annotations of the type and all of its members are collected in one pass
+ * when the context is created and its common counterpart is resolved at most once.
+ * Its members are compared with those of the common type through a
+ * {@link TypeHierarchy} of the platform model, which may be shared between contexts.
+ */
+public class TypeContext {
+
+    private final LauncherContext.Cache cache;
+    private final CtType<?> type;
+    private final AnnotationIndex annotations;
+    private final TypeHierarchy hierarchy;
+    @Nullable private CtType<?> overwritten;
+
+    public TypeContext(final LauncherContext.Cache cache, final CtType<?> type) {
+        this(cache, type, new TypeHierarchy(type.getFactory()));
+    }
+
+    public TypeContext(final LauncherContext.Cache cache, final CtType<?> type, final TypeHierarchy hierarchy) {
+        this.cache = cache;
+        this.type = type;
+        this.annotations = new AnnotationIndex(type);
+        this.hierarchy = hierarchy;
+    }
+
+    public LauncherContext.Cache getCache() {
+        return this.cache;
+    }
+
+    public CtType<?> getType() {
+        return this.type;
+    }
+
+    public TypeHierarchy getHierarchy() {
+        return this.hierarchy;
+    }
+
+    /**
+     * Determines whether the type itself was annotated when the context was created.
+     * As in {@link personthecat.overwritevalidator.CtUtils#getAnnotation}, annotations
+     * which Spoon resolved to the type's own package are also accepted.
+     */
+    public boolean isAnnotated(final Class<? extends Annotation> a) {
+        return this.annotations.isAnnotated(a);
+    }
+
+    /**
+     * Determines whether any member of this type or its nested types was annotated
+     * when the context was created.
+     */
+    public boolean anyMemberIsAnnotated(final Class<? extends Annotation> a) {
+        return this.annotations.anyMemberIsAnnotated(a);
+    }
+
+    /**
+     * Retrieves an annotation of any element in this type or in its common counterpart.
+     * The annotations of each element are only resolved once per context.
+     */
+    @Nullable
+    public CtAnnotation<?> getAnnotation(final CtElement e, final Class<? extends Annotation> a) {
+        return this.annotations.getAnnotation(e, a);
+    }
+
+    public boolean hasAnnotation(final CtElement e, final Class<? extends Annotation> a) {
+        return this.annotations.hasAnnotation(e, a);
+    }
+
+    /** Removes an annotation from an element in this type, if present. */
+    public void removeAnnotation(final CtElement e, @Nullable final CtAnnotation<?> a) {
+        this.annotations.removeAnnotation(e, a);
+    }
+
+    @Nonnull
+    public CtType<?> getOverwrittenClassOrThrow() {
+        if (this.overwritten == null) {
+            this.overwritten = this.cache.getOverwrittenClassOrThrow(this.type);
+        }
+        return this.overwritten;
+    }
+}
@@ -0,0 +1,91 @@
+package personthecat.overwritevalidator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BodyStripperTest {
+
+    @Test
+    public void stripBodies_replacesMethodAndConstructorBodies() {
+        final String source = "class A {\n  A() {\n    init();\n  }\n  int get() { return 1; }\n}";
+        final String expected = "class A {\n  A() {throw null;\n\n}\n  int get() {throw null;}\n}";
+        assertEquals(expected, BodyStripper.stripBodies(source));
+    }
+
+    @Test
+    public void stripBodies_keepsLineBreaks() {
+        final String source = "class A {\n  void a() {\n    x();\n    y();\n  }\n  void b() {}\n}";
+        final String stripped = BodyStripper.stripBodies(source);
+        assertEquals(source.split("\n", -1).length, stripped.split("\n", -1).length);
+        assertEquals(true, stripped.contains("  void b() {throw null;}"));
+    }
+
+    @Test
+    public void stripBodies_ignoresBracesInLiterals() {
+        final String source = "class A {\n  char c() { return '{'; }\n  String s() { return \"}\"; }\n  char d = '}';\n}";
+        final String expected = "class A {\n  char c() {throw null;}\n  String s() {throw null;}\n  char d = '}';\n}";
+        assertEquals(expected, BodyStripper.stripBodies(source));
+    }
+
+    @Test
+    public void stripBodies_ignoresBracesInTextBlocks() {
+        final String source = "class A {\n  String s() { return \"\"\"\n    {\n    \"\"\"; }\n  void t() {}\n}";
+        final String expected = "class A {\n  String s() {throw null;\n\n}\n  void t() {throw null;}\n}";
+        assertEquals(expected, BodyStripper.stripBodies(source));
+    }
+
+    @Test
+    public void stripBodies_keepsAnnotationArrayValues() {
+        final String source = "class A {\n  @B({1, 2}) @C(d = {\"e\"}) void f() { g(); }\n}";
+        final String expected = "class A {\n  @B({1, 2}) @C(d = {\"e\"}) void f() {throw null;}\n}";
+        assertEquals(expected, BodyStripper.stripBodies(source));
+    }
+
+    @Test
+    public void stripBodies_keepsAnnotationDefaults() {
+        final String source = "@interface A {\n  String[] value() default {\"a\"};\n  int b() default 1;\n}";
+        assertEquals(source, BodyStripper.stripBodies(source));
+    }
+
+    @Test
+    public void stripBodies_keepsLambdasInFieldInitializers() {
+        final String source = "class A {\n  Runnable r = () -> { run(); };\n  Object o = f(x -> { return x; });\n  void g() { h(); }\n}";
+        final String expected = "class A {\n  Runnable r = () -> { run(); };\n  Object o = f(x -> { return x; });\n  void g() {throw null;}\n}";
+        assertEquals(expected, BodyStripper.stripBodies(source));
+    }
+
+    @Test
+    public void stripBodies_keepsInitializersAndAnonymousClasses() {
+        final String source = "class A {\n  static { init(); }\n  { init(); }\n  Object o = new Object() { public String toString() { return \"\"; } };\n}";
+        assertEquals(source, BodyStripper.stripBodies(source));
+    }
+
+    @Test
+    public void stripBodies_stripsEnumConstantBodies() {
+        final String source = "enum A {\n  B(1) { int get() { return 2; } },\n  C { int get() { return 3; } };\n  A() {}\n  A(int i) { this(); }\n  int get() { return 1; }\n}";
+        final String expected = "enum A {\n  B(1) { int get() {throw null;} },\n  C { int get() {throw null;} };\n  A() {throw null;}\n"
+            + "  A(int i) {throw null;}\n  int get() {throw null;}\n}";
+        assertEquals(expected, BodyStripper.stripBodies(source));
+    }
+
+    @Test
+    public void stripBodies_stripsRecordMethods() {
+        final String source = "record A(int b, int c) implements D {\n  A {\n    check(b);\n  }\n  int sum() { return b + c; }\n}";
+        final String expected = "record A(int b, int c) implements D {\n  A {\n    check(b);\n  }\n  int sum() {throw null;}\n}";
+        assertEquals(expected, BodyStripper.stripBodies(source));
+    }
+
+    @Test
+    public void stripBodies_stripsNestedTypeMethods() {
+        final String source = "class A {\n  interface B { default void c() { d(); } }\n  static class E { void f() {} }\n}";
+        final String expected = "class A {\n  interface B { default void c() {throw null;} }\n  static class E { void f() {throw null;} }\n}";
+        assertEquals(expected, BodyStripper.stripBodies(source));
+    }
+
+    @Test
+    public void stripBodies_returnsUnbalancedSourcesAsIs() {
+        final String source = "class A {\n  void b() {\n    if (c) {\n}";
+        assertEquals(source, BodyStripper.stripBodies(source));
+    }
+}
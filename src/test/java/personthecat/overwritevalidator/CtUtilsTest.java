@@ -0,0 +1,51 @@
+package personthecat.overwritevalidator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CtUtilsTest {
+
+    @Test
+    public void hasCompatibleArguments_acceptsIdenticalAndUnrelatedTypes() {
+        assertTrue(CtUtils.hasCompatibleArguments("java.util.List<java.lang.String>", "java.util.List<java.lang.String>"));
+        assertTrue(CtUtils.hasCompatibleArguments("java.util.ArrayList<java.lang.String>", "java.util.List<java.lang.Integer>"));
+        assertTrue(CtUtils.hasCompatibleArguments("java.lang.String", "java.lang.Object"));
+    }
+
+    @Test
+    public void hasCompatibleArguments_rejectsConflictingArguments() {
+        assertFalse(CtUtils.hasCompatibleArguments("java.util.List<java.lang.String>", "java.util.List<java.lang.Integer>"));
+        assertFalse(CtUtils.hasCompatibleArguments("java.util.Map<java.lang.String,java.lang.Integer>",
+            "java.util.Map<java.lang.String,java.lang.Long>"));
+    }
+
+    @Test
+    public void hasCompatibleArguments_acceptsRawTypes() {
+        assertTrue(CtUtils.hasCompatibleArguments("java.util.List", "java.util.List<java.lang.String>"));
+        assertTrue(CtUtils.hasCompatibleArguments("java.util.List<java.lang.String>", "java.util.List"));
+    }
+
+    @Test
+    public void hasCompatibleArguments_acceptsWildcards() {
+        assertTrue(CtUtils.hasCompatibleArguments("java.util.List<?>", "java.util.List<java.lang.String>"));
+        assertTrue(CtUtils.hasCompatibleArguments("java.util.List<java.lang.String>", "java.util.List<? extends java.lang.CharSequence>"));
+    }
+
+    @Test
+    public void hasCompatibleArguments_acceptsTypeVariables() {
+        assertTrue(CtUtils.hasCompatibleArguments("java.util.List<'T>", "java.util.List<java.lang.String>"));
+        assertTrue(CtUtils.hasCompatibleArguments("java.util.Map<java.lang.String,'V>", "java.util.Map<java.lang.String,'E>"));
+    }
+
+    @Test
+    public void hasCompatibleArguments_comparesNestedArguments() {
+        assertTrue(CtUtils.hasCompatibleArguments("java.util.List<java.util.Map<java.lang.String,?>>",
+            "java.util.List<java.util.Map<java.lang.String,java.lang.Integer>>"));
+        assertFalse(CtUtils.hasCompatibleArguments("java.util.List<java.util.Map<java.lang.String,java.lang.Long>>",
+            "java.util.List<java.util.Map<java.lang.String,java.lang.Integer>>"));
+        assertFalse(CtUtils.hasCompatibleArguments("java.util.List<java.util.List<java.lang.String>>",
+            "java.util.List<java.util.Set<java.lang.String>>"));
+    }
+}
@@ -0,0 +1,73 @@
+package personthecat.overwritevalidator;
+
+import org.junit.Test;
+import personthecat.overwritevalidator.JavaLexer.Token;
+import personthecat.overwritevalidator.JavaLexer.TokenType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class JavaLexerTest {
+
+    @Test
+    public void tokenize_splitsIdentifiersAndSymbols() {
+        assertEquals(Arrays.asList("a", ".", "b", "(", "c", ")", ";"), texts("a.b(c);"));
+        assertEquals(Arrays.asList(TokenType.IDENTIFIER, TokenType.SYMBOL, TokenType.LITERAL), types("x=12"));
+    }
+
+    @Test
+    public void tokenize_skipsComments() {
+        assertEquals(Arrays.asList("a", "b"), texts("a // { line\n/* block { */ b"));
+        assertEquals(Arrays.asList("a"), texts("a /* unterminated"));
+    }
+
+    @Test
+    public void tokenize_keepsStringsWhole() {
+        assertEquals(Arrays.asList("s", "=", "\"{ \\\" }\"", ";"), texts("s = \"{ \\\" }\";"));
+    }
+
+    @Test
+    public void tokenize_keepsCharLiteralsWhole() {
+        assertEquals(Arrays.asList("'{'", "'\\''", "'\"'", "}"), texts("'{' '\\'' '\"' }"));
+        assertEquals(Arrays.asList(TokenType.LITERAL, TokenType.LITERAL, TokenType.LITERAL, TokenType.SYMBOL), types("'{' '\\'' '\"' }"));
+    }
+
+    @Test
+    public void tokenize_keepsTextBlocksWhole() {
+        final String block = "\"\"\"\n  { \"quoted\" \\\"\"\" }\n  \"\"\"";
+        assertEquals(Arrays.asList("s", "=", block, ";"), texts("s = " + block + ";"));
+    }
+
+    @Test
+    public void tokenize_stopsUnterminatedStringsAtLineEnd() {
+        assertEquals(Arrays.asList("\"abc", "x"), texts("\"abc\nx"));
+    }
+
+    @Test
+    public void is_comparesTokenText() {
+        final String source = "class Foo";
+        final List<Token> tokens = JavaLexer.tokenize(source);
+        assertEquals(true, tokens.get(0).is(source, "class"));
+        assertEquals(false, tokens.get(0).is(source, "clas"));
+        assertEquals(false, tokens.get(1).is(source, "Fooo"));
+    }
+
+    private static List<String> texts(final String source) {
+        final List<String> texts = new ArrayList<>();
+        for (final Token token : JavaLexer.tokenize(source)) {
+            texts.add(token.getText(source));
+        }
+        return texts;
+    }
+
+    private static List<TokenType> types(final String source) {
+        final List<TokenType> types = new ArrayList<>();
+        for (final Token token : JavaLexer.tokenize(source)) {
+            types.add(token.getType());
+        }
+        return types;
+    }
+}
@@ -0,0 +1,60 @@
+package personthecat.overwritevalidator;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SourceIndexTest {
+
+    @Test
+    public void getDeclaredTypes_findsTopLevelTypes() {
+        final String source = "package a.b;\n\nclass C {}\ninterface D {}\nenum E { F }\n@interface G {}\nrecord H(int i) {}";
+        assertEquals(Arrays.asList("a.b.C", "a.b.D", "a.b.E", "a.b.G", "a.b.H"), SourceIndex.getDeclaredTypes(source));
+    }
+
+    @Test
+    public void getDeclaredTypes_skipsNestedAndLocalTypes() {
+        final String source = "package a;\nclass B {\n  class C {}\n  void d() { class E {} }\n  enum F { G { class H {} } }\n}";
+        assertEquals(Collections.singletonList("a.B"), SourceIndex.getDeclaredTypes(source));
+    }
+
+    @Test
+    public void getDeclaredTypes_ignoresKeywordsInLiteralsAndComments() {
+        final String source = "package a;\n// class X {}\nclass B {\n  char c = '{';\n  String s = \"}\";\n  String t = \"\"\"\n  }\n  \"\"\";\n}\n"
+            + "/* class Y */ class Z {}";
+        assertEquals(Arrays.asList("a.B", "a.Z"), SourceIndex.getDeclaredTypes(source));
+    }
+
+    @Test
+    public void getDeclaredTypes_ignoresClassLiteralsAndRecordIdentifiers() {
+        final String source = "package a;\nclass B {\n  Object c = B.class;\n}\nclass D {}\nint record = 1;";
+        assertEquals(Arrays.asList("a.B", "a.D"), SourceIndex.getDeclaredTypes(source));
+    }
+
+    @Test
+    public void getDeclaredTypes_supportsTheDefaultPackage() {
+        assertEquals(Collections.singletonList("A"), SourceIndex.getDeclaredTypes("class A {}"));
+    }
+
+    @Test
+    public void getImports_dropsTheStaticKeyword() {
+        final String source = "package a;\nimport b.C;\nimport static d.E.f;\nimport g.*;\nclass H { void i() { String import_ = \"import j.K;\"; } }";
+        assertEquals(Arrays.asList("b.C", "d.E.f", "g.*"), SourceIndex.getImports(source));
+        assertEquals(Arrays.asList("b.C", "static d.E.f", "g.*"), SourceIndex.getImportDeclarations(source));
+    }
+
+    @Test
+    public void getIdentifiers_skipsLiteralsAndComments() {
+        final String source = "class A { B b = new B(\"C\"); /* D */ // E\n char f = 'G'; }";
+        assertTrue(SourceIndex.getIdentifiers(source).containsAll(Arrays.asList("class", "A", "B", "b", "new", "char", "f")));
+        assertFalse(SourceIndex.getIdentifiers(source).contains("C"));
+        assertFalse(SourceIndex.getIdentifiers(source).contains("D"));
+        assertFalse(SourceIndex.getIdentifiers(source).contains("E"));
+        assertFalse(SourceIndex.getIdentifiers(source).contains("G"));
+    }
+}
@@ -0,0 +1,49 @@
+package personthecat.overwritevalidator;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class VersionedFileTest {
+
+    @Test
+    public void read_returnsWhatWasWritten() throws IOException {
+        final File file = new File(Files.createTempDirectory("versioned").toFile(), "nested/data.bin");
+        new VersionedFile<>(file, ArrayList.class, 1, "test data").write(new ArrayList<>(Arrays.asList("a", "b")));
+        assertEquals(Arrays.asList("a", "b"), new VersionedFile<>(file, ArrayList.class, 1, "test data").read());
+    }
+
+    @Test
+    public void read_ignoresOtherVersions() throws IOException {
+        final File file = File.createTempFile("versioned", ".bin");
+        new VersionedFile<>(file, ArrayList.class, 1, "test data").write(new ArrayList<>());
+        assertNull(new VersionedFile<>(file, ArrayList.class, 2, "test data").read());
+    }
+
+    @Test
+    public void read_discardsUnreadableFiles() throws IOException {
+        final File file = File.createTempFile("versioned", ".bin");
+        Files.write(file.toPath(), "not serialized".getBytes(StandardCharsets.UTF_8));
+        assertNull(new VersionedFile<>(file, ArrayList.class, 1, "test data").read());
+    }
+
+    @Test
+    public void read_discardsOtherTypes() throws IOException {
+        final File file = File.createTempFile("versioned", ".bin");
+        new VersionedFile<>(file, String.class, 1, "test data").write("text");
+        assertNull(new VersionedFile<>(file, ArrayList.class, 1, "test data").read());
+    }
+
+    @Test
+    public void read_returnsNullForMissingFiles() {
+        assertNull(new VersionedFile<>(new File("missing.bin"), ArrayList.class, 1, "test data").read());
+    }
+}
@@ -0,0 +1,117 @@
+package personthecat.overwritevalidator.processors;
+
+import org.junit.Test;
+import personthecat.overwritevalidator.processors.ImportRewriter.ImportData;
+import personthecat.overwritevalidator.processors.ImportRewriter.Names;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ImportRewriterTest {
+
+    @Test
+    public void importData_readsWildcardsAndStaticImports() {
+        final ImportData wildcard = new ImportData(false, "a.b.*");
+        assertEquals("import a.b.*;", wildcard.statement);
+        assertEquals("a.b", wildcard.path);
+        assertEquals("a.b.*", wildcard.getKey());
+        final ImportData member = new ImportData(true, "a.B.c");
+        assertEquals("import static a.B.c;", member.statement);
+        assertEquals("c", member.getKey());
+    }
+
+    @Test
+    public void shorten_usesSingleTypeImports() {
+        final Names names = names("p.Main", Arrays.asList("a.B"));
+        assertEquals("B", names.shorten(split("a.B")));
+        assertEquals("B.C", names.shorten(split("a.B.C")));
+        assertNull(names.shorten(split("a.D")));
+    }
+
+    @Test
+    public void shorten_usesStaticImports() {
+        final Names names = names("p.Main", Arrays.asList("static a.B.c"));
+        assertEquals("c", names.shorten(split("a.B.c")));
+    }
+
+    @Test
+    public void shorten_usesTheSamePackageAndJavaLang() {
+        final Names names = names("p.Main", Arrays.asList());
+        assertEquals("Other", names.shorten(split("p.Other")));
+        assertEquals("String", names.shorten(split("java.lang.String")));
+        assertEquals("Main.Nested", names.shorten(split("p.Main.Nested")));
+    }
+
+    @Test
+    public void shorten_usesWildcardImports() {
+        final Names names = names("p.Main", Arrays.asList("a.b.*"));
+        assertEquals("C", names.shorten(split("a.b.C")));
+        assertEquals("C.D", names.shorten(split("a.b.C.D")));
+        assertNull(names.shorten(split("a.b.c.D")));
+    }
+
+    @Test
+    public void shorten_keepsNamesShadowedBySingleTypeImports() {
+        final Names names = names("p.Main", Arrays.asList("a.*", "b.C"));
+        assertNull(names.shorten(split("a.C")));
+        assertEquals("C", names.shorten(split("b.C")));
+    }
+
+    @Test
+    public void shorten_keepsNamesShadowedByTheSamePackage() {
+        final Names names = names("p.Main", Arrays.asList("a.*"), "p.C");
+        assertNull(names.shorten(split("a.C")));
+        assertEquals("C", names.shorten(split("p.C")));
+    }
+
+    @Test
+    public void shorten_keepsNamesShadowedByNestedTypes() {
+        final Names names = names("p.Main", Arrays.asList("a.*", "b.D"), "p.Main.C", "p.Main.D");
+        assertNull(names.shorten(split("a.C")));
+        assertNull(names.shorten(split("b.D")));
+        assertNull(names.shorten(split("a.Main")));
+    }
+
+    @Test
+    public void shorten_keepsNamesInSeveralWildcards() {
+        final Names names = names("p.Main", Arrays.asList("a.*", "b.*"), "a.C", "b.C", "a.D");
+        assertNull(names.shorten(split("a.C")));
+        assertNull(names.shorten(split("b.C")));
+        assertEquals("D", names.shorten(split("a.D")));
+    }
+
+    @Test
+    public void shorten_keepsNamesWhichConflictWithJavaLang() {
+        final Names names = names("p.Main", Arrays.asList("a.*"), "a.String", "java.lang.String");
+        assertNull(names.shorten(split("a.String")));
+        assertNull(names.shorten(split("java.lang.String")));
+    }
+
+    @Test
+    public void shorten_keepsSimpleNames() {
+        assertNull(names("p.Main", Arrays.asList("a.*")).shorten(split("C")));
+    }
+
+    /**
+     * Creates the names of a file with the given imports, in which only the given
+     * types are known to exist.
+     */
+    private static Names names(final String type, final List<String> imports, final String... known) {
+        final List<ImportData> data = new ArrayList<>();
+        for (final String i : imports) {
+            data.add(i.startsWith("static ") ? new ImportData(true, i.substring(7)) : new ImportData(false, i));
+        }
+        final Set<String> types = new HashSet<>(Arrays.asList(known));
+        return new Names(type, data, (container, name) -> types.contains(container + "." + name));
+    }
+
+    private static List<String> split(final String name) {
+        return Arrays.asList(name.split("\\."));
+    }
+}